@@ -0,0 +1,124 @@
+package com.example.l2_20223209;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.Debug;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.signature.ObjectKey;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Una presentación de 1000 imágenes con la misma petición que arma CatDisplayActivity (con y
+ * sin texto dibujado en el teléfono) no hace crecer la memoria: los bitmaps salen del pool de
+ * Glide y la caché de memoria tiene tamaño fijo.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SlideshowMemoryTest {
+    private static final int IMAGES = 1000;
+    // Imágenes cargadas antes de la primera medición, para que el pool y la caché se llenen
+    private static final int WARM_UP_IMAGES = 100;
+    private static final int VIEW_WIDTH = 600;
+    private static final int VIEW_HEIGHT = 800;
+    private static final long MAX_GROWTH_BYTES = 8L * 1024 * 1024;
+
+    private Context context;
+    private byte[] jpeg;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // Una foto más grande que el ImageView, como las que devuelve el servidor
+        Bitmap source = Bitmap.createBitmap(1200, 1600, Bitmap.Config.ARGB_8888);
+        new Canvas(source).drawColor(Color.rgb(200, 120, 40));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        source.recycle();
+        jpeg = out.toByteArray();
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> Glide.get(context).clearMemory());
+    }
+
+    @Test
+    public void heapStaysFlatOverLongSession() throws Exception {
+        assertHeapStaysFlat(null);
+    }
+
+    @Test
+    public void heapStaysFlatWithLocalTextOverlay() throws Exception {
+        assertHeapStaysFlat("Hola gato");
+    }
+
+    private void assertHeapStaysFlat(String overlayText) throws Exception {
+        AtomicInteger loaded = new AtomicInteger();
+        RequestListener<Drawable> listener = new RequestListener<Drawable>() {
+            @Override
+            public boolean onLoadFailed(GlideException e, Object model, Target<Drawable> target,
+                                        boolean isFirstResource) {
+                return false;
+            }
+
+            @Override
+            public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                           DataSource dataSource, boolean isFirstResource) {
+                loaded.incrementAndGet();
+                return false;
+            }
+        };
+        long baseline = 0;
+        for (int i = 0; i < IMAGES; i++) {
+            if (i == WARM_UP_IMAGES) {
+                baseline = usedMemory();
+            }
+            // Firma distinta por imagen: cada una se decodifica de nuevo, como en una presentación real
+            FutureTarget<Drawable> target = CatDisplayActivity
+                    .displayRequest(Glide.with(context).load(jpeg), overlayText, listener)
+                    .signature(new ObjectKey(i))
+                    .submit(VIEW_WIDTH, VIEW_HEIGHT);
+            try {
+                Drawable drawable = target.get();
+                assertTrue(drawable.getIntrinsicWidth() <= VIEW_WIDTH * 2);
+            } finally {
+                Glide.with(context).clear(target);
+            }
+        }
+        assertEquals(IMAGES, loaded.get());
+        long growth = usedMemory() - baseline;
+        assertTrue("La memoria creció " + growth / 1024 + " KB", growth < MAX_GROWTH_BYTES);
+    }
+
+    // Memoria de Java más la nativa (donde viven los píxeles de los bitmaps)
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.l2_20223209;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPoolAdapter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * El texto se dibuja en el teléfono sobre la parte inferior de la imagen, con cualquier
+ * texto Unicode, sin tocar la imagen original ni el resto de la imagen.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TextOverlayTransformationTest {
+    private static final int SIZE = 400;
+
+    @Test
+    public void drawsUnicodeTextAtTheBottom() {
+        Bitmap source = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        source.eraseColor(Color.GRAY);
+        TestTransformation transformation = new TestTransformation("¡Ñandú, 猫 y 🐱!");
+
+        Bitmap result = transformation.apply(source);
+
+        assertEquals(SIZE, result.getWidth());
+        assertEquals(Color.GRAY, source.getPixel(SIZE / 2, SIZE - 30));
+        assertEquals(Color.GRAY, result.getPixel(SIZE / 2, 10));
+        assertTrue(changedPixels(result, SIZE * 3 / 4, SIZE) > 0);
+    }
+
+    @Test
+    public void textIsPartOfTheCacheKey() {
+        assertEquals(new TextOverlayTransformation("hola"), new TextOverlayTransformation("hola"));
+        assertNotEquals(new TextOverlayTransformation("hola"), new TextOverlayTransformation("adiós"));
+    }
+
+    private static int changedPixels(Bitmap bitmap, int fromY, int toY) {
+        int changed = 0;
+        for (int y = fromY; y < toY; y++) {
+            for (int x = 0; x < bitmap.getWidth(); x++) {
+                if (bitmap.getPixel(x, y) != Color.GRAY) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    // Expone transform() con un pool que no guarda bitmaps
+    private static class TestTransformation extends TextOverlayTransformation {
+        TestTransformation(String text) {
+            super(text);
+        }
+
+        Bitmap apply(Bitmap source) {
+            return transform(new BitmapPoolAdapter(), source, source.getWidth(), source.getHeight());
+        }
+    }
+}
@@ -1,28 +1,50 @@
 package com.example.l2_20223209;
 
+import android.content.Context;
 import android.content.Intent;
+import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.load.resource.bitmap.CenterCrop;
+import com.bumptech.glide.request.FutureTarget;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+
+import java.io.File;
+
+import com.example.l2_20223209.data.CatPackStore;
 import com.example.l2_20223209.data.HistoryManager;
 import com.example.l2_20223209.databinding.ActivityCatDisplayBinding;
+import com.example.l2_20223209.network.ConnectivityMonitor;
 import com.example.l2_20223209.viewmodel.CatDisplayViewModel;
 
 public class CatDisplayActivity extends AppCompatActivity {
 
     public static final String EXTRA_QUANTITY = "extra_quantity";
     public static final String EXTRA_TEXT = "extra_text";
+    // URL de la primera imagen ya descargada en la pantalla anterior (opcional)
+    public static final String EXTRA_FIRST_IMAGE_URL = "extra_first_image_url";
+    // Dibujar el texto en el teléfono en lugar de pedirlo al servidor (opcional, false por defecto)
+    public static final String EXTRA_LOCAL_TEXT_OVERLAY = "extra_local_text_overlay";
+    private static final int IMAGE_TIMEOUT_MS = 8000;
 
     private ActivityCatDisplayBinding binding;
     private CatDisplayViewModel viewModel;
     private HistoryManager historyManager;
     private int quantity;
     private String text;
+    // Texto a dibujar sobre cada imagen, o null si ya viene en la imagen del servidor
+    private String overlayText;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -31,8 +53,8 @@ public class CatDisplayActivity extends AppCompatActivity {
         binding = ActivityCatDisplayBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        // Inicializar ViewModel
-        viewModel = new CatDisplayViewModel();
+        // ViewModel ligado al ciclo de vida: al rotar se reutiliza con su presentación en curso
+        viewModel = new ViewModelProvider(this).get(CatDisplayViewModel.class);
         
         // Inicializar HistoryManager
         historyManager = HistoryManager.getInstance(this);
@@ -41,12 +63,19 @@ public class CatDisplayActivity extends AppCompatActivity {
         Intent intent = getIntent();
         quantity = intent.getIntExtra(EXTRA_QUANTITY, 1);
         text = intent.getStringExtra(EXTRA_TEXT);
+        boolean localTextOverlay = intent.getBooleanExtra(EXTRA_LOCAL_TEXT_OVERLAY, false);
+        if (localTextOverlay && text != null && !text.trim().isEmpty()) {
+            overlayText = text.trim();
+        }
 
         setupViews(quantity);
         setupViewModelCallbacks();
+        setupImagePrefetch();
+        // Con el texto dibujado aquí, el paquete guardado es de gatos sin texto
+        viewModel.setOfflinePack(offlinePack(getApplicationContext(), localTextOverlay ? "" : text));
         
-        // Inicializar ViewModel con datos
-        viewModel.initialize(quantity, text);
+        // Inicializar ViewModel con datos (sin efecto si ya estaba inicializado)
+        viewModel.initialize(quantity, text, intent.getStringExtra(EXTRA_FIRST_IMAGE_URL), localTextOverlay);
         
         setupClickListeners();
     }
@@ -63,69 +92,161 @@ public class CatDisplayActivity extends AppCompatActivity {
     }
 
     private void setupViewModelCallbacks() {
-        // Callback para actualización del timer
-        viewModel.setTimerUpdateCallback(timeSeconds -> {
-            runOnUiThread(() -> {
-                int minutes = timeSeconds / 60;
-                int seconds = timeSeconds % 60;
-                String timeText = String.format("%02d:%02d", minutes, seconds);
-                binding.timerText.setText(timeText);
-            });
-        });
+        // Contador
+        viewModel.getRemainingSeconds().observe(this, timeSeconds ->
+            binding.timerText.setText(CatDisplayViewModel.formatTime(timeSeconds)));
 
-        // Callback para cargar nueva imagen
-        viewModel.setImageUrlCallback(imageUrl -> {
-            runOnUiThread(() -> {
-                loadImage(imageUrl);
-            });
-        });
+        // Imagen a mostrar (al recrear la pantalla se vuelve a cargar desde la caché)
+        viewModel.getCurrentImageUrl().observe(this, this::loadImage);
 
-        // Callback para habilitar botón siguiente
-        viewModel.setNextButtonEnabledCallback(isEnabled -> {
-            runOnUiThread(() -> {
-                binding.nextButton.setEnabled(isEnabled);
-                if (isEnabled) {
-                    binding.nextButton.setBackgroundTintList(
-                        getColorStateList(R.color.button_enabled_color)
-                    );
-                } else {
-                    binding.nextButton.setBackgroundTintList(
-                        getColorStateList(R.color.button_disabled_color)
-                    );
-                }
-            });
+        // Botón siguiente
+        viewModel.getNextButtonEnabled().observe(this, isEnabled -> {
+            binding.nextButton.setEnabled(isEnabled);
+            if (isEnabled) {
+                binding.nextButton.setBackgroundTintList(
+                    getColorStateList(R.color.button_enabled_color)
+                );
+            } else {
+                binding.nextButton.setBackgroundTintList(
+                    getColorStateList(R.color.button_disabled_color)
+                );
+            }
         });
 
-        // Callback para mostrar errores
-        viewModel.setErrorCallback(errorMessage -> {
-            runOnUiThread(() -> {
+        // Errores (cada uno se muestra una sola vez)
+        viewModel.getErrorMessage().observe(this, event -> {
+            String errorMessage = event.consume();
+            if (errorMessage != null) {
                 Toast.makeText(this, errorMessage, Toast.LENGTH_SHORT).show();
                 showErrorState();
-            });
+            }
         });
     }
 
+    // Las imágenes siguientes se descargan y decodifican al tamaño del ImageView mientras
+    // se muestra la actual; al mostrarlas, Glide las encuentra en su caché de memoria
+    private void setupImagePrefetch() {
+        binding.catImage.addOnLayoutChangeListener((v, left, top, right, bottom,
+                                                    oldLeft, oldTop, oldRight, oldBottom) ->
+            viewModel.setViewportSize(right - left, bottom - top));
+        viewModel.setImagePrefetcher(glidePrefetcher(getApplicationContext(), overlayText));
+    }
+
+    // Estático y solo con el contexto de la aplicación: el ViewModel lo conserva después de
+    // que esta Activity se destruya al rotar
+    private static CatDisplayViewModel.ImagePrefetcher glidePrefetcher(Context appContext, String overlayText) {
+        return new CatDisplayViewModel.ImagePrefetcher() {
+            @Override
+            public void download(String imageUrl) throws Exception {
+                // Solo los bytes, a la caché de disco
+                FutureTarget<File> target = Glide.with(appContext)
+                        .downloadOnly()
+                        .load(imageUrl)
+                        .timeout(IMAGE_TIMEOUT_MS)
+                        .submit();
+                try {
+                    target.get();
+                } finally {
+                    Glide.with(appContext).clear(target);
+                }
+            }
+
+            @Override
+            public void decode(String imageUrl, int width, int height) throws Exception {
+                FutureTarget<Drawable> target = imageRequest(Glide.with(appContext).load(imageUrl), overlayText)
+                        .submit(width, height);
+                try {
+                    target.get();
+                } finally {
+                    // Liberar el recurso para que pase a la caché de memoria
+                    Glide.with(appContext).clear(target);
+                }
+            }
+        };
+    }
+
+    // Paquete guardado para este texto. Cada consulta va al índice del almacenamiento, porque
+    // el worker puede guardar y borrar imágenes mientras la presentación corre. Estático por
+    // la misma razón que glidePrefetcher
+    private static CatDisplayViewModel.OfflinePack offlinePack(Context appContext, String text) {
+        CatPackStore.Pack pack = CatPackStore.getInstance(appContext).pack(text);
+        ConnectivityMonitor connectivityMonitor = ConnectivityMonitor.getInstance(appContext);
+        return new CatDisplayViewModel.OfflinePack() {
+            @Override
+            public int size() {
+                return pack.count();
+            }
+
+            @Override
+            public String imageAt(int index) {
+                return pathOf(pack.imageAt(index));
+            }
+
+            @Override
+            public String indexedImageAt(int index) {
+                return pathOf(pack.indexedImageAt(index));
+            }
+
+            private String pathOf(File image) {
+                return image != null ? image.getAbsolutePath() : null;
+            }
+
+            @Override
+            public boolean isNetworkAvailable() {
+                return connectivityMonitor.getState().isConnected();
+            }
+        };
+    }
+
+    // Opciones comunes de la carga y la descarga anticipada (forman parte de la clave de caché).
+    // El formato y la estrategia de reducción vienen de TeleCatGlideModule.
+    // overlayText: texto a dibujar sobre la imagen ya recortada, o null
+    private static RequestBuilder<Drawable> imageRequest(RequestBuilder<Drawable> request, String overlayText) {
+        request = request.timeout(IMAGE_TIMEOUT_MS); // Timeout de 8 segundos
+        if (overlayText == null) {
+            return request.centerCrop(); // Ajustar imagen al contenedor
+        }
+        // Ajustar al contenedor y dibujar el texto; el lienzo necesita un bitmap de software
+        return request
+                .transform(new CenterCrop(), new TextOverlayTransformation(overlayText))
+                .disallowHardwareConfig();
+    }
+
+    // Carga de la imagen en pantalla: las opciones comunes y el listener que avisa el resultado
+    static RequestBuilder<Drawable> displayRequest(RequestBuilder<Drawable> request, String overlayText,
+                                                   RequestListener<Drawable> listener) {
+        return imageRequest(request, overlayText).listener(listener);
+    }
+
     private void loadImage(String imageUrl) {
         Log.d("CatDisplay", "Cargando imagen: " + imageUrl);
         
         // Mostrar loading
         binding.loadingIndicator.setVisibility(View.VISIBLE);
-        binding.catImage.setVisibility(View.GONE);
+        // Invisible (no GONE) para que conserve su tamaño y Glide pueda cargar a ese tamaño
+        binding.catImage.setVisibility(View.INVISIBLE);
         binding.errorLayout.setVisibility(View.GONE);
 
-        // Cargar imagen con Glide con configuración optimizada
-        Glide.with(this)
-                .load(imageUrl)
-                .timeout(8000) // Timeout de 8 segundos
-                .centerCrop() // Ajustar imagen al contenedor
-                .into(binding.catImage);
-                
-        // Simular carga exitosa después de un breve delay para permitir que Glide procese
-        binding.catImage.postDelayed(() -> {
-            Log.d("CatDisplay", "Imagen procesada para: " + imageUrl);
-            showImageLoaded();
-            viewModel.onImageLoadSuccess();
-        }, 1500); // Dar más tiempo para la carga
+        // Cargar imagen con Glide con configuración optimizada; el spinner se oculta cuando
+        // Glide avisa que terminó (de inmediato si la imagen ya estaba en caché)
+        viewModel.onImageLoadStarted(imageUrl);
+        displayRequest(Glide.with(this).load(imageUrl), overlayText, new RequestListener<Drawable>() {
+            @Override
+            public boolean onLoadFailed(GlideException e, Object model,
+                                        Target<Drawable> target, boolean isFirstResource) {
+                Log.w("CatDisplay", "Error al cargar: " + imageUrl, e);
+                viewModel.onImageLoadError(imageUrl);
+                return false;
+            }
+
+            @Override
+            public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                           DataSource dataSource, boolean isFirstResource) {
+                showImageLoaded();
+                viewModel.onImageLoadSuccess(imageUrl, dataSource.name());
+                return false;
+            }
+        }).into(binding.catImage);
     }
 
     private void showImageLoaded() {
@@ -136,7 +257,7 @@ public class CatDisplayActivity extends AppCompatActivity {
 
     private void showErrorState() {
         binding.loadingIndicator.setVisibility(View.GONE);
-        binding.catImage.setVisibility(View.GONE);
+        binding.catImage.setVisibility(View.INVISIBLE);
         binding.errorLayout.setVisibility(View.VISIBLE);
     }
 
@@ -169,9 +290,6 @@ public class CatDisplayActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (viewModel != null) {
-            viewModel.cleanup();
-        }
         if (binding != null) {
             binding = null;
         }
@@ -3,6 +3,8 @@ package com.example.l2_20223209;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 
 import androidx.appcompat.app.AlertDialog;
@@ -11,12 +13,17 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.l2_20223209.adapter.HistoryAdapter;
 import com.example.l2_20223209.data.HistoryManager;
+import com.example.l2_20223209.data.HistoryRollup;
 import com.example.l2_20223209.databinding.ActivityHistoryBinding;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public class HistoryActivity extends AppCompatActivity {
 
+    private static final int STATS_DAYS = 7;
+    private static final long DAY_MS = 24L * 60L * 60L * 1000L;
+
     private ActivityHistoryBinding binding;
     private HistoryManager historyManager;
     private HistoryAdapter adapter;
@@ -32,28 +39,118 @@ public class HistoryActivity extends AppCompatActivity {
         historyManager = HistoryManager.getInstance(this);
 
         setupRecyclerView();
-        loadHistory();
+        setupSearch();
         setupClickListeners();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Al volver a la pantalla solo se actualizan las filas que cambiaron
+        loadHistory();
+        loadStats();
+    }
+
     private void setupRecyclerView() {
-        adapter = new HistoryAdapter();
+        adapter = new HistoryAdapter(new HistoryAdapter.PageLoader() {
+            @Override
+            public void loadRange(int fromNumber, int toNumber,
+                                  Consumer<List<HistoryManager.Interaction>> callback) {
+                historyManager.loadRange(fromNumber, toNumber, callback);
+            }
+
+            @Override
+            public void loadNumbers(int[] interactionNumbers,
+                                    Consumer<List<HistoryManager.Interaction>> callback) {
+                historyManager.loadNumbers(interactionNumbers, callback);
+            }
+        });
         binding.historyRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         binding.historyRecyclerView.setAdapter(adapter);
     }
 
     private void loadHistory() {
-        List<HistoryManager.Interaction> history = historyManager.getHistory();
-        
-        if (history.isEmpty()) {
+        // El historial se abre en segundo plano; los totales valen una vez abierto
+        historyManager.whenOpened().whenComplete((ignored, error) -> runOnUiThread(this::showHistory));
+    }
+
+    private void showHistory() {
+        if (binding == null) {
+            return;
+        }
+        // Solo se consulta el total; las filas se cargan por páginas al hacer scroll
+        int totalInteractions = historyManager.getTotalInteractions();
+        adapter.submitRange(historyManager.getFirstInteractionNumber(), totalInteractions);
+        applySearch(binding.searchEditText.getText() != null
+                ? binding.searchEditText.getText().toString() : "");
+    }
+
+    // Estadísticas de hoy y de los últimos días a partir de los resúmenes diarios
+    private void loadStats() {
+        long now = System.currentTimeMillis();
+        historyManager.loadStats(HistoryRollup.DAILY, now, now, today ->
+                historyManager.loadStats(HistoryRollup.DAILY, now - (STATS_DAYS - 1) * DAY_MS, now, week ->
+                        runOnUiThread(() -> showStats(today, week))));
+    }
+
+    private void showStats(HistoryRollup today, HistoryRollup week) {
+        if (binding == null) {
+            return;
+        }
+        if (week.getInteractions() == 0) {
+            binding.historyStatsText.setVisibility(View.GONE);
+            return;
+        }
+        binding.historyStatsText.setText(formatStats("Hoy", today) + "\n"
+                + formatStats("Últimos " + STATS_DAYS + " días", week));
+        binding.historyStatsText.setVisibility(View.VISIBLE);
+    }
+
+    private static String formatStats(String label, HistoryRollup rollup) {
+        return label + ": " + rollup.getInteractions() + " interacci"
+                + (rollup.getInteractions() != 1 ? "ones" : "ón") + " · "
+                + rollup.getImagesViewed() + " imagen" + (rollup.getImagesViewed() != 1 ? "es" : "") + " · "
+                + rollup.getDistinctTexts() + " texto" + (rollup.getDistinctTexts() != 1 ? "s" : "")
+                + " distinto" + (rollup.getDistinctTexts() != 1 ? "s" : "");
+    }
+
+    private void setupSearch() {
+        binding.searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                applySearch(s.toString());
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {}
+        });
+    }
+
+    // Filtrar con el índice de búsqueda (no recorre el historial)
+    private void applySearch(String query) {
+        if (query.trim().isEmpty()) {
+            adapter.setFilter(null);
+            updateEmptyState(historyManager.getTotalInteractions(), "No hay interacciones registradas");
+        } else {
+            int[] results = historyManager.search(query);
+            adapter.setFilter(results);
+            updateEmptyState(results.length, "No hay interacciones con ese texto");
+        }
+    }
+
+    private void updateEmptyState(int count, String emptyMessage) {
+        if (count == 0) {
             // Mostrar estado vacío
+            binding.emptyStateText.setText(emptyMessage);
             binding.emptyStateLayout.setVisibility(View.VISIBLE);
             binding.historyRecyclerView.setVisibility(View.GONE);
         } else {
             // Mostrar historial
             binding.emptyStateLayout.setVisibility(View.GONE);
             binding.historyRecyclerView.setVisibility(View.VISIBLE);
-            adapter.setInteractions(history);
         }
     }
 
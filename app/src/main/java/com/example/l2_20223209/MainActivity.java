@@ -1,27 +1,36 @@
 package com.example.l2_20223209;
 
+import android.content.Context;
 import android.content.Intent;
+import android.graphics.Typeface;
 import android.os.Bundle;
+import android.widget.ScrollView;
+import android.widget.TextView;
 import android.widget.ArrayAdapter;
 import android.widget.Toast;
 import android.text.Editable;
 import android.text.TextWatcher;
 
 import androidx.activity.EdgeToEdge;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.ViewModelProvider;
 
+import com.bumptech.glide.Glide;
+import com.example.l2_20223209.concurrent.AppExecutors;
+import com.example.l2_20223209.data.CatPackWorker;
+import com.example.l2_20223209.data.HistoryManager;
 import com.example.l2_20223209.databinding.ActivityMainBinding;
 import com.example.l2_20223209.viewmodel.MainViewModel;
-import com.example.l2_20223209.network.ConnectivityChecker;
+import com.example.l2_20223209.network.NetworkMetrics;
 
 public class MainActivity extends AppCompatActivity {
 
     private ActivityMainBinding binding;
     private MainViewModel viewModel;
-    private ConnectivityChecker connectivityChecker;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,14 +48,30 @@ public class MainActivity extends AppCompatActivity {
             return insets;
         });
         
-        // Inicializar ViewModel y ConnectivityChecker
-        viewModel = new MainViewModel();
-        connectivityChecker = new ConnectivityChecker(this);
+        // ViewModel ligado al ciclo de vida: al recrear la pantalla se reutiliza el mismo
+        viewModel = new ViewModelProvider(this).get(MainViewModel.class);
+        setupImagePrewarm();
         
         setupViews();
         setupViewModelCallbacks();
     }
     
+    // Con la conexión verificada y el formulario completo, la primera imagen se descarga
+    // mientras el usuario termina; la presentación la encuentra en la caché de disco de Glide
+    private void setupImagePrewarm() {
+        // La imagen ocupa casi todo el ancho (márgenes de 24dp); el alto real se conoce
+        // recién en la presentación, así que se estima cuadrada
+        int margins = (int) (2 * 24 * getResources().getDisplayMetrics().density);
+        int width = getResources().getDisplayMetrics().widthPixels - margins;
+        viewModel.setExpectedImageSize(width, width);
+        // Solo el contexto de la aplicación: el ViewModel sobrevive a esta Activity
+        Context appContext = getApplicationContext();
+        viewModel.setImagePrewarmer(imageUrl -> Glide.with(appContext)
+            .downloadOnly()
+            .load(imageUrl)
+            .preload());
+    }
+    
     private void setupViews() {
         // Configurar el spinner de texto
         setupTextoSpinner();
@@ -56,6 +81,55 @@ public class MainActivity extends AppCompatActivity {
         
         // Configurar click listeners para los botones
         setupClickListeners();
+        
+        // Solo en debug: mantener presionado el encabezado muestra las latencias de red
+        if (BuildConfig.DEBUG) {
+            binding.headerCard.setOnLongClickListener(v -> {
+                showNetworkMetrics();
+                return true;
+            });
+        }
+    }
+    
+    // Percentiles p50/p95/p99 por endpoint y fase, con opción de exportarlos en JSON, y el
+    // estado de los ejecutores compartidos
+    private void showNetworkMetrics() {
+        NetworkMetrics metrics = NetworkMetrics.getInstance();
+        TextView text = new TextView(this);
+        text.setTypeface(Typeface.MONOSPACE);
+        text.setTextIsSelectable(true);
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        text.setPadding(padding, padding, padding, padding);
+        text.setText(metrics.toText() + "\nEjecutores\n" + AppExecutors.getInstance().toText());
+        ScrollView scroll = new ScrollView(this);
+        scroll.addView(text);
+        
+        new AlertDialog.Builder(this)
+            .setTitle("Métricas de depuración")
+            .setView(scroll)
+            .setPositiveButton("Cerrar", null)
+            .setNeutralButton("Exportar JSON", (dialog, which) -> {
+                Intent share = new Intent(Intent.ACTION_SEND);
+                share.setType("application/json");
+                share.putExtra(Intent.EXTRA_SUBJECT, "Latencias de red");
+                share.putExtra(Intent.EXTRA_TEXT, metrics.toJson());
+                startActivity(Intent.createChooser(share, "Exportar latencias"));
+            })
+            .setNegativeButton(historyBackendToggleLabel(), (dialog, which) -> toggleHistoryBackend())
+            .show();
+    }
+    
+    // Alternar el almacenamiento del historial entre SQLite y el archivo binario
+    private String historyBackendToggleLabel() {
+        return HistoryManager.getBackend(this) == HistoryManager.Backend.MAPPED
+            ? "Historial: pasar a SQLite" : "Historial: pasar a binario";
+    }
+    
+    private void toggleHistoryBackend() {
+        HistoryManager.Backend next = HistoryManager.getBackend(this) == HistoryManager.Backend.MAPPED
+            ? HistoryManager.Backend.SQLITE : HistoryManager.Backend.MAPPED;
+        HistoryManager.setBackend(this, next);
+        Toast.makeText(this, "El historial se migrará al reiniciar la app", Toast.LENGTH_LONG).show();
     }
     
     private void setupTextoSpinner() {
@@ -104,43 +178,29 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void afterTextChanged(Editable s) {}
         });
+        
+        // Dibujar el texto en el teléfono (acentos y emoji incluidos) o pedirlo al servidor
+        viewModel.setDibujarTextoLocal(binding.dibujarTextoLocalSwitch.isChecked());
+        binding.dibujarTextoLocalSwitch.setOnCheckedChangeListener((button, isChecked) ->
+            viewModel.setDibujarTextoLocal(isChecked));
     }
     
     private void setupClickListeners() {
         // Click listener para el botón comprobar conexión
         binding.comprobarConexionButton.setOnClickListener(v -> {
-            // Deshabilitar el botón temporalmente
-            binding.comprobarConexionButton.setEnabled(false);
-            binding.comprobarConexionButton.setText("Verificando...");
-            
-            // Verificar conectividad usando ConnectivityChecker
-            boolean hasConnection = connectivityChecker.isConnectedToInternet();
-            
-            // Restaurar el botón
-            binding.comprobarConexionButton.setEnabled(true);
-            binding.comprobarConexionButton.setText(getString(R.string.comprobar_conexion));
-            
-            // Actualizar ViewModel con el resultado
-            viewModel.setConexionVerificada(hasConnection);
-            
-            // Si hay conexión real, hacer verificación en background
-            if (hasConnection) {
-                viewModel.checkInternetConnection();
-            } else {
-                Toast.makeText(this, "Sin conexión a internet", Toast.LENGTH_SHORT).show();
-            }
+            // Estado de red en caché y ping a cataas; el botón se deshabilita mientras tanto
+            viewModel.checkInternetConnection();
         });
         
         // Click listener para el botón comenzar
         binding.comenzarButton.setOnClickListener(v -> {
-            if (viewModel.isFormValid() && viewModel.getConnectionStatus()) {
+            if (viewModel.isFormValid() && viewModel.canBegin()) {
                 // Obtener datos del formulario
                 MainViewModel.FormData formData = viewModel.getFormData();
                 
                 // Crear intent para la nueva actividad
                 Intent intent = new Intent(MainActivity.this, CatDisplayActivity.class);
-                intent.putExtra(CatDisplayActivity.EXTRA_QUANTITY, 
-                               Integer.parseInt(formData.cantidad));
+                intent.putExtra(CatDisplayActivity.EXTRA_QUANTITY, formData.cantidadImagenes);
                 
                 // Solo pasar texto si se seleccionó "Sí"
                 if ("Sí".equals(formData.textoSeleccionado)) {
@@ -149,6 +209,18 @@ public class MainActivity extends AppCompatActivity {
                     intent.putExtra(CatDisplayActivity.EXTRA_TEXT, ""); // Texto vacío
                 }
                 
+                // Primera imagen ya descargada durante el formulario, si la hay
+                intent.putExtra(CatDisplayActivity.EXTRA_FIRST_IMAGE_URL, viewModel.getPrewarmedImageUrl());
+                
+                // Dibujar el texto aquí en lugar de pedirlo al servidor
+                intent.putExtra(CatDisplayActivity.EXTRA_LOCAL_TEXT_OVERLAY, formData.dibujarTextoLocal);
+                
+                // Paquete para usar este texto sin conexión (gatos sin texto si se dibuja aquí);
+                // se descarga cuando el teléfono esté cargando con Wi-Fi (si ya está completo no
+                // descarga nada)
+                String packText = formData.dibujarTextoLocal ? "" : intent.getStringExtra(CatDisplayActivity.EXTRA_TEXT);
+                CatPackWorker.enqueue(getApplicationContext(), packText, CatPackWorker.DEFAULT_PACK_SIZE);
+                
                 // Iniciar actividad
                 startActivity(intent);
             } else {
@@ -158,51 +230,45 @@ public class MainActivity extends AppCompatActivity {
     }
     
     private void setupViewModelCallbacks() {
-        // Callback para estado de conexión
-        viewModel.setConnectionStatusCallback(isConnected -> {
-            runOnUiThread(() -> {
-                if (isConnected) {
-                    binding.comprobarConexionButton.setIconResource(R.drawable.ic_wifi);
-                }
-            });
-        });
+        // Estado de conexión
+        viewModel.getConnectionStatus().observe(this, isConnected ->
+            binding.comprobarConexionButton.setIconResource(
+                isConnected ? R.drawable.ic_wifi : R.drawable.ic_warning));
         
-        // Callback para mensajes de Toast
-        viewModel.setToastMessageCallback(message -> {
-            runOnUiThread(() -> {
-                if (message != null && !message.isEmpty()) {
-                    Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
-                }
-            });
+        // Verificación en curso
+        viewModel.getCheckingConnection().observe(this, checking -> {
+            binding.comprobarConexionButton.setEnabled(!checking);
+            binding.comprobarConexionButton.setText(
+                checking ? "Verificando..." : getString(R.string.comprobar_conexion));
         });
         
-        // Callback para estado del botón Comenzar
-        viewModel.setBeginButtonEnabledCallback(isEnabled -> {
-            runOnUiThread(() -> {
-                binding.comenzarButton.setEnabled(isEnabled);
-            });
+        // Mensajes de Toast (cada uno se muestra una sola vez)
+        viewModel.getToastMessage().observe(this, event -> {
+            String message = event.consume();
+            if (message != null && !message.isEmpty()) {
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
         });
         
-        // Callback para estado del campo "Escribir texto"
-        viewModel.setTextInputEnabledCallback(isEnabled -> {
-            runOnUiThread(() -> {
-                binding.escribirTextoEditText.setEnabled(isEnabled);
-                binding.escribirTextoInputLayout.setEnabled(isEnabled);
-                
-                // Limpiar el campo si se deshabilita
-                if (!isEnabled) {
-                    binding.escribirTextoEditText.setText("");
-                }
-            });
+        // Estado del botón Comenzar
+        viewModel.getBeginButtonEnabled().observe(this, isEnabled ->
+            binding.comenzarButton.setEnabled(isEnabled));
+        
+        // Estado del campo "Escribir texto"
+        viewModel.getTextInputEnabled().observe(this, isEnabled -> {
+            binding.escribirTextoEditText.setEnabled(isEnabled);
+            binding.escribirTextoInputLayout.setEnabled(isEnabled);
+            
+            // Limpiar el campo si se deshabilita
+            if (!isEnabled) {
+                binding.escribirTextoEditText.setText("");
+            }
         });
     }
     
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (viewModel != null) {
-            viewModel.cleanup();
-        }
         if (binding != null) {
             binding = null;
         }
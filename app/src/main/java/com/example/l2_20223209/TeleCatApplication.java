@@ -0,0 +1,57 @@
+package com.example.l2_20223209;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.MemoryCategory;
+import com.example.l2_20223209.network.ConnectivityMonitor;
+
+public class TeleCatApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Un solo callback de red para toda la app, registrado desde el inicio
+        ConnectivityMonitor.getInstance(this);
+        // Al volver a primer plano las cachés de Glide recuperan su tamaño completo
+        registerActivityLifecycleCallbacks(new ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityStarted(@NonNull Activity activity) {
+                Glide.get(activity).setMemoryCategory(MemoryCategory.NORMAL);
+            }
+
+            @Override
+            public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) { }
+
+            @Override
+            public void onActivityResumed(@NonNull Activity activity) { }
+
+            @Override
+            public void onActivityPaused(@NonNull Activity activity) { }
+
+            @Override
+            public void onActivityStopped(@NonNull Activity activity) { }
+
+            @Override
+            public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) { }
+
+            @Override
+            public void onActivityDestroyed(@NonNull Activity activity) { }
+        });
+    }
+
+    // Glide ya vacía o recorta sus cachés con cada nivel; además, con poca memoria en el
+    // sistema o con la UI oculta se reduce su tamaño máximo para que no vuelvan a crecer
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            Glide.get(this).setMemoryCategory(MemoryCategory.LOW);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.l2_20223209;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+import com.example.l2_20223209.network.RetrofitClient;
+
+import java.io.InputStream;
+
+// Configuración de Glide para toda la app: las imágenes se descargan con el cliente
+// OkHttp compartido en lugar de la pila HTTP propia de Glide
+@GlideModule
+public class TeleCatGlideModule extends AppGlideModule {
+    // Pantallas completas que caben en la caché de memoria: la imagen actual y la siguiente
+    // ya decodificada por la descarga anticipada
+    private static final float MEMORY_CACHE_SCREENS = 2;
+    // Bitmaps libres para reutilizar al decodificar: con imágenes del mismo tamaño cada
+    // cambio de imagen reutiliza uno en lugar de asignar memoria nueva
+    private static final float BITMAP_POOL_SCREENS = 3;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .setBitmapPoolScreens(BITMAP_POOL_SCREENS)
+                .build();
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()));
+        // Las fotos de gatos no tienen transparencia: RGB_565 usa la mitad de memoria que
+        // ARGB_8888 (Glide vuelve a ARGB_8888 si la imagen tiene canal alfa). Decodificar
+        // al tamaño del destino, sin bajar del necesario para el centerCrop
+        builder.setDefaultRequestOptions(new RequestOptions()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .downsample(DownsampleStrategy.CENTER_OUTSIDE));
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.replace(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(RetrofitClient.getHttpClient()));
+    }
+
+    // No hay módulos declarados en el manifest
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.l2_20223209;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+// Dibuja el texto de la presentación sobre una imagen, al estilo de cataas: centrado abajo,
+// blanco con borde negro. StaticLayout se encarga del texto Unicode completo (acentos,
+// emoji, escrituras de derecha a izquierda) y de partirlo en líneas.
+// No es seguro entre hilos: el lienzo, la pintura y el último layout se reutilizan entre
+// imágenes, así que cada hilo usa su propia instancia
+final class TextOverlayRenderer {
+    // Tamaño del texto respecto al lado menor de la imagen
+    private static final float TEXT_SIZE_FRACTION = 0.09f;
+    // Grosor del borde respecto al tamaño del texto
+    private static final float STROKE_FRACTION = 0.15f;
+    private static final float MARGIN_FRACTION = 0.05f;
+    private static final int MAX_LINES = 3;
+
+    private final Canvas canvas = new Canvas();
+    private final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    // Con imágenes del mismo tamaño y el mismo texto (toda una presentación) el layout se
+    // calcula una sola vez
+    private StaticLayout layout;
+    private String layoutText;
+    private int layoutWidth;
+    private float layoutTextSize;
+
+    TextOverlayRenderer() {
+        paint.setTypeface(Typeface.DEFAULT_BOLD);
+        paint.setStrokeJoin(Paint.Join.ROUND);
+    }
+
+    // Copiar 'source' en 'target' (del mismo tamaño) y dibujar el texto encima
+    void render(Bitmap source, Bitmap target, String text) {
+        int width = target.getWidth();
+        int height = target.getHeight();
+        float textSize = Math.min(width, height) * TEXT_SIZE_FRACTION;
+        int margin = (int) (Math.min(width, height) * MARGIN_FRACTION);
+        StaticLayout textLayout = layoutFor(text, width - 2 * margin, textSize);
+
+        canvas.setBitmap(target);
+        canvas.drawBitmap(source, 0, 0, null);
+        canvas.save();
+        canvas.translate(margin, height - margin - textLayout.getHeight());
+        // El mismo layout dos veces: primero el borde y luego el relleno
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(textSize * STROKE_FRACTION);
+        paint.setColor(Color.BLACK);
+        textLayout.draw(canvas);
+        paint.setStyle(Paint.Style.FILL);
+        paint.setColor(Color.WHITE);
+        textLayout.draw(canvas);
+        canvas.restore();
+        // No retener la imagen: vuelve al pool de Glide
+        canvas.setBitmap(null);
+    }
+
+    private StaticLayout layoutFor(String text, int width, float textSize) {
+        if (layout == null || !text.equals(layoutText) || width != layoutWidth || textSize != layoutTextSize) {
+            paint.setTextSize(textSize);
+            layout = StaticLayout.Builder.obtain(text, 0, text.length(), paint, Math.max(1, width))
+                    .setAlignment(Layout.Alignment.ALIGN_CENTER)
+                    .setIncludePad(false)
+                    .setMaxLines(MAX_LINES)
+                    .setEllipsize(TextUtils.TruncateAt.END)
+                    .build();
+            layoutText = text;
+            layoutWidth = width;
+            layoutTextSize = textSize;
+        }
+        return layout;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.l2_20223209;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapTransformation;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Texto de la presentación dibujado en el teléfono en lugar de pedirlo al servidor. Glide
+// aplica la transformación en sus hilos de decodificación, después del centerCrop: la imagen
+// original queda en la caché de disco sin texto y sirve para cualquier texto, y el resultado
+// (con texto) va a la caché de memoria como cualquier otra imagen
+public class TextOverlayTransformation extends BitmapTransformation {
+    private static final String ID = "com.example.l2_20223209.TextOverlayTransformation";
+    private static final byte[] ID_BYTES = ID.getBytes(StandardCharsets.UTF_8);
+    // Un dibujante por hilo de Glide, que conserva su lienzo y su pintura entre imágenes
+    private static final ThreadLocal<TextOverlayRenderer> RENDERERS =
+            ThreadLocal.withInitial(TextOverlayRenderer::new);
+
+    private final String text;
+
+    public TextOverlayTransformation(@NonNull String text) {
+        this.text = text;
+    }
+
+    @Override
+    protected Bitmap transform(@NonNull BitmapPool pool, @NonNull Bitmap toTransform, int outWidth, int outHeight) {
+        Bitmap.Config config = toTransform.getConfig() != null ? toTransform.getConfig() : Bitmap.Config.ARGB_8888;
+        // Del pool: en una presentación todas las imágenes tienen el mismo tamaño
+        Bitmap result = pool.get(toTransform.getWidth(), toTransform.getHeight(), config);
+        result.setHasAlpha(toTransform.hasAlpha());
+        RENDERERS.get().render(toTransform, result, text);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TextOverlayTransformation && text.equals(((TextOverlayTransformation) o).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return ID.hashCode() * 31 + text.hashCode();
+    }
+
+    // Forma parte de la clave de caché: cada texto tiene su propia imagen decodificada
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+        messageDigest.update(ID_BYTES);
+        messageDigest.update(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.l2_20223209.adapter;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,18 +11,126 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.l2_20223209.R;
+import com.example.l2_20223209.concurrent.AppExecutors;
 import com.example.l2_20223209.data.HistoryManager;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryViewHolder> {
 
-    private List<HistoryManager.Interaction> interactions = new ArrayList<>();
+    // El historial se carga por páginas: solo la ventana visible más un margen de precarga.
+    // Las páginas se identifican por número de interacción (no por posición), así que
+    // agregar o compactar interacciones no invalida las páginas ya cargadas.
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_PAGES = 1;
+    private static final int MAX_CACHED_PAGES = 6;
 
-    public void setInteractions(List<HistoryManager.Interaction> interactions) {
-        this.interactions = interactions;
-        notifyDataSetChanged();
+    // Fuente de interacciones por rango de números [from, to] o por lista de números; el
+    // callback puede llamarse desde cualquier hilo (p. ej. el escritor del historial)
+    public interface PageLoader {
+        void loadRange(int fromNumber, int toNumber, Consumer<List<HistoryManager.Interaction>> callback);
+
+        void loadNumbers(int[] interactionNumbers, Consumer<List<HistoryManager.Interaction>> callback);
+    }
+
+    private final PageLoader pageLoader;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Las filas se preparan y comparan en el carril de cómputo, sin ocupar el hilo que
+    // entregó la página ni el principal
+    private final Executor prepareExecutor = AppExecutors.getInstance().cpu();
+    // Páginas cargadas, desalojando la menos usada recientemente.
+    // Cada página es un arreglo inmutable indexado por (número - 1) % PAGE_SIZE
+    private final Map<Integer, HistoryItem[]> pages =
+            new LinkedHashMap<Integer, HistoryItem[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, HistoryItem[]> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
+    private final Set<Integer> pendingPages = new HashSet<>();
+    // Rango visible: interacciones [firstNumber, firstNumber + itemCount)
+    private int firstNumber = 1;
+    private int itemCount;
+    // Resultados de búsqueda (números en orden); null muestra el rango completo.
+    // En ese modo las páginas se identifican por posición con claves negativas
+    private int[] filter;
+    // Se incrementa al reemplazar todo el rango para descartar cargas en vuelo
+    private int generation;
+
+    public HistoryAdapter(PageLoader pageLoader) {
+        this.pageLoader = pageLoader;
+        setHasStableIds(true);
+    }
+
+    // Actualizar el rango de interacciones. Como los números son contiguos y crecientes,
+    // la diferencia estructural se calcula con los extremos del rango en O(1); el contenido
+    // de las páginas ya cargadas se vuelve a comparar en segundo plano.
+    public void submitRange(int firstNumber, int itemCount) {
+        int oldFirst = this.firstNumber;
+        int oldCount = this.itemCount;
+        int oldEnd = oldFirst + oldCount;
+        int newEnd = firstNumber + itemCount;
+        this.firstNumber = firstNumber;
+        this.itemCount = itemCount;
+        if (filter != null) {
+            // Mientras se muestran resultados de búsqueda el rango no se ve
+            return;
+        }
+
+        if (oldCount == 0 || itemCount == 0 || firstNumber < oldFirst || firstNumber >= oldEnd) {
+            // Rangos sin relación (historial vacío o reiniciado): reemplazar todo
+            pages.clear();
+            pendingPages.clear();
+            generation++;
+            if (oldCount > 0) {
+                notifyItemRangeRemoved(0, oldCount);
+            }
+            if (itemCount > 0) {
+                notifyItemRangeInserted(0, itemCount);
+            }
+            return;
+        }
+
+        // Interacciones antiguas retiradas al principio
+        if (firstNumber > oldFirst) {
+            notifyItemRangeRemoved(0, firstNumber - oldFirst);
+        }
+        // Interacciones nuevas al final (o retiradas del final)
+        if (newEnd > oldEnd) {
+            notifyItemRangeInserted(oldEnd - firstNumber, newEnd - oldEnd);
+        } else if (newEnd < oldEnd) {
+            notifyItemRangeRemoved(newEnd - firstNumber, oldEnd - newEnd);
+        }
+
+        for (Integer page : new ArrayList<>(pages.keySet())) {
+            loadPage(page);
+        }
+    }
+
+    // Mostrar solo esas interacciones (resultado de búsqueda), o todo el rango con null
+    public void setFilter(int[] interactionNumbers) {
+        if (interactionNumbers == null && filter == null) {
+            return;
+        }
+        int oldCount = getItemCount();
+        filter = interactionNumbers;
+        pages.clear();
+        pendingPages.clear();
+        generation++;
+        if (oldCount > 0) {
+            notifyItemRangeRemoved(0, oldCount);
+        }
+        if (getItemCount() > 0) {
+            notifyItemRangeInserted(0, getItemCount());
+        }
     }
 
     @NonNull
@@ -33,13 +143,163 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryV
 
     @Override
     public void onBindViewHolder(@NonNull HistoryViewHolder holder, int position) {
-        HistoryManager.Interaction interaction = interactions.get(position);
-        holder.bind(interaction);
+        if (filter != null) {
+            bindFiltered(holder, position);
+            return;
+        }
+        int number = firstNumber + position;
+        int page = pageOf(number);
+        for (int p = page - PREFETCH_PAGES; p <= page + PREFETCH_PAGES; p++) {
+            requestPage(p);
+        }
+
+        HistoryItem[] items = pages.get(page);
+        HistoryItem item = items != null ? items[(number - 1) % PAGE_SIZE] : null;
+        if (item != null) {
+            holder.bind(item);
+        } else {
+            holder.bindPlaceholder();
+        }
+    }
+
+    private void bindFiltered(HistoryViewHolder holder, int position) {
+        int page = position / PAGE_SIZE;
+        for (int p = page - PREFETCH_PAGES; p <= page + PREFETCH_PAGES; p++) {
+            requestFilteredPage(p);
+        }
+
+        HistoryItem[] items = pages.get(filteredKey(page));
+        HistoryItem item = items != null ? items[position % PAGE_SIZE] : null;
+        if (item != null) {
+            holder.bind(item);
+        } else {
+            holder.bindPlaceholder();
+        }
     }
 
     @Override
     public int getItemCount() {
-        return interactions.size();
+        return filter != null ? filter.length : itemCount;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return filter != null ? filter[position] : firstNumber + position;
+    }
+
+    private static int filteredKey(int page) {
+        return -1 - page;
+    }
+
+    private void requestFilteredPage(int page) {
+        int start = page * PAGE_SIZE;
+        int key = filteredKey(page);
+        if (page < 0 || start >= filter.length || pages.containsKey(key) || !pendingPages.add(key)) {
+            return;
+        }
+        int[] numbers = Arrays.copyOfRange(filter, start, Math.min(filter.length, start + PAGE_SIZE));
+        int requestGeneration = generation;
+        pageLoader.loadNumbers(numbers, interactions -> prepareExecutor.execute(() -> {
+            // Los resultados vienen en orden creciente, igual que los números pedidos
+            HistoryItem[] items = new HistoryItem[PAGE_SIZE];
+            for (HistoryManager.Interaction interaction : interactions) {
+                int index = Arrays.binarySearch(numbers, interaction.getInteractionNumber());
+                if (index >= 0) {
+                    items[index] = new HistoryItem(interaction);
+                }
+            }
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                pendingPages.remove(key);
+                pages.put(key, items);
+                notifyItemRangeChanged(start, numbers.length);
+            });
+        }));
+    }
+
+    private static int pageOf(int number) {
+        return (number - 1) / PAGE_SIZE;
+    }
+
+    private void requestPage(int page) {
+        int pageFirst = page * PAGE_SIZE + 1;
+        int pageLast = pageFirst + PAGE_SIZE - 1;
+        if (page < 0 || pageLast < firstNumber || pageFirst >= firstNumber + itemCount
+                || pages.containsKey(page)) {
+            return;
+        }
+        loadPage(page);
+    }
+
+    private void loadPage(int page) {
+        if (!pendingPages.add(page)) {
+            return;
+        }
+        int pageFirst = page * PAGE_SIZE + 1;
+        int requestGeneration = generation;
+        HistoryItem[] oldItems = pages.get(page);
+        pageLoader.loadRange(pageFirst, pageFirst + PAGE_SIZE - 1, interactions -> prepareExecutor.execute(() -> {
+            // Preparar las filas y calcular las diferencias fuera del hilo principal
+            HistoryItem[] newItems = new HistoryItem[PAGE_SIZE];
+            for (HistoryManager.Interaction interaction : interactions) {
+                newItems[interaction.getInteractionNumber() - pageFirst] = new HistoryItem(interaction);
+            }
+            List<Integer> changedNumbers = diffPage(pageFirst, oldItems, newItems);
+            mainHandler.post(() -> onPageLoaded(requestGeneration, page, newItems, changedNumbers));
+        }));
+    }
+
+    private static List<Integer> diffPage(int pageFirst, HistoryItem[] oldItems, HistoryItem[] newItems) {
+        List<Integer> changedNumbers = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            HistoryItem oldItem = oldItems != null ? oldItems[i] : null;
+            HistoryItem newItem = newItems[i];
+            boolean changed;
+            if (oldItem == null || newItem == null) {
+                changed = oldItem != newItem;
+            } else {
+                changed = !HistoryItem.DIFF_CALLBACK.areItemsTheSame(oldItem, newItem)
+                        || !HistoryItem.DIFF_CALLBACK.areContentsTheSame(oldItem, newItem);
+            }
+            if (changed) {
+                changedNumbers.add(pageFirst + i);
+            }
+        }
+        return changedNumbers;
+    }
+
+    private void onPageLoaded(int requestGeneration, int page, HistoryItem[] items,
+                              List<Integer> changedNumbers) {
+        if (requestGeneration != generation) {
+            // El rango se reemplazó mientras la página se cargaba
+            return;
+        }
+        pendingPages.remove(page);
+        pages.put(page, items);
+
+        // Notificar solo las filas que cambiaron, agrupadas en rangos contiguos
+        int rangeStart = -1;
+        int rangeCount = 0;
+        for (int number : changedNumbers) {
+            int position = number - firstNumber;
+            if (position < 0 || position >= itemCount) {
+                continue;
+            }
+            if (rangeCount > 0 && position == rangeStart + rangeCount) {
+                rangeCount++;
+            } else {
+                if (rangeCount > 0) {
+                    notifyItemRangeChanged(rangeStart, rangeCount);
+                }
+                rangeStart = position;
+                rangeCount = 1;
+            }
+        }
+        if (rangeCount > 0) {
+            notifyItemRangeChanged(rangeStart, rangeCount);
+        }
     }
 
     static class HistoryViewHolder extends RecyclerView.ViewHolder {
@@ -54,17 +314,22 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.HistoryV
             interactionQuantity = itemView.findViewById(R.id.interaction_quantity);
         }
 
-        public void bind(HistoryManager.Interaction interaction) {
+        public void bind(HistoryItem item) {
             // Título de la interacción
-            String title = "Interaccion" + interaction.getInteractionNumber() + ": " + 
-                          interaction.getQuantityText();
-            interactionTitle.setText(title);
+            interactionTitle.setText(item.title);
             
             // Texto usado
-            interactionText.setText(interaction.getFormattedText());
+            interactionText.setText(item.text);
             
             // Cantidad
-            interactionQuantity.setText(interaction.getQuantityText());
+            interactionQuantity.setText(item.quantity);
+        }
+
+        // Fila aún no cargada
+        public void bindPlaceholder() {
+            interactionTitle.setText("Cargando...");
+            interactionText.setText("");
+            interactionQuantity.setText("");
         }
     }
-}
\ No newline at end of file
+}
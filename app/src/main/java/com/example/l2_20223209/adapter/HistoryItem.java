@@ -0,0 +1,54 @@
+package com.example.l2_20223209.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.l2_20223209.data.HistoryManager;
+
+import java.util.Objects;
+
+// Fila del historial lista para mostrar: los textos se arman una sola vez,
+// en el hilo que carga la página, y no en cada bind
+public final class HistoryItem {
+
+    static final DiffUtil.ItemCallback<HistoryItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<HistoryItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull HistoryItem oldItem, @NonNull HistoryItem newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull HistoryItem oldItem, @NonNull HistoryItem newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    final long id;
+    final String title;
+    final String text;
+    final String quantity;
+
+    HistoryItem(HistoryManager.Interaction interaction) {
+        String quantityText = interaction.getQuantityText();
+        this.id = interaction.getInteractionNumber();
+        this.title = "Interaccion" + interaction.getInteractionNumber() + ": " + quantityText;
+        this.text = interaction.getFormattedText();
+        this.quantity = quantityText;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HistoryItem)) return false;
+        HistoryItem other = (HistoryItem) o;
+        return id == other.id
+                && title.equals(other.title)
+                && text.equals(other.text)
+                && quantity.equals(other.quantity);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, text, quantity);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.l2_20223209.concurrent;
+
+import android.os.Process;
+
+import com.example.l2_20223209.network.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Ejecutores de toda la app, en lugar de un pool por ViewModel (que se creaban de nuevo
+// con cada pantalla). Tres carriles con hilos acotados:
+// - io: esperas de red y disco (descargas, descarga anticipada)
+// - cpu: trabajo de cómputo (p. ej. preparar y comparar las páginas del historial)
+// - timer: tareas programadas, cortas; solo despiertan a otros (p. ej. pedir un frame)
+public class AppExecutors {
+
+    private static final int IO_THREADS = 4;
+    private static final int MAX_CPU_THREADS = 4;
+
+    private static AppExecutors instance;
+
+    private final LaneExecutor io;
+    private final LaneExecutor cpu;
+    private final ScheduledThreadPoolExecutor timer;
+    // Retraso de cada tarea programada respecto a su hora, y su duración
+    private final LatencyHistogram timerLateness = new LatencyHistogram();
+    private final LatencyHistogram timerRunTimes = new LatencyHistogram();
+
+    private AppExecutors() {
+        io = new LaneExecutor("io", IO_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+        int cpuThreads = Math.max(1, Math.min(MAX_CPU_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+        cpu = new LaneExecutor("cpu", cpuThreads, Process.THREAD_PRIORITY_BACKGROUND);
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+                runnable.run();
+            }, "timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Las tareas canceladas (p. ej. al cerrar una pantalla) no se quedan en la cola
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            instance = new AppExecutors();
+        }
+        return instance;
+    }
+
+    public LaneExecutor io() {
+        return io;
+    }
+
+    public LaneExecutor cpu() {
+        return cpu;
+    }
+
+    // Programar una tarea corta en el carril de temporización
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        long dueNanos = System.nanoTime() + unit.toNanos(delay);
+        return timer.schedule(() -> {
+            long start = System.nanoTime();
+            timerLateness.recordNanos(start - dueNanos);
+            try {
+                task.run();
+            } finally {
+                timerRunTimes.recordNanos(System.nanoTime() - start);
+            }
+        }, delay, unit);
+    }
+
+    // Resumen de los tres carriles para la pantalla de depuración
+    public String toText() {
+        return io.toText() + cpu.toText()
+                + String.format(Locale.ROOT,
+                        "timer: cola=%d completadas=%d%n  retraso p50=%.1f p95=%.1f ms  ejecución p50=%.1f p95=%.1f ms%n",
+                        timer.getQueue().size(), timer.getCompletedTaskCount(),
+                        timerLateness.percentileMs(50), timerLateness.percentileMs(95),
+                        timerRunTimes.percentileMs(50), timerRunTimes.percentileMs(95));
+    }
+}
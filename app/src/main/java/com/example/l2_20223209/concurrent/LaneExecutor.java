@@ -0,0 +1,141 @@
+package com.example.l2_20223209.concurrent;
+
+import android.os.Process;
+
+import com.example.l2_20223209.network.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+// Carril de ejecución compartido por toda la app: una cantidad fija de hilos y una cola con
+// prioridad (a igual prioridad, en orden de llegada). Mide la profundidad de la cola, cuánto
+// espera cada tarea antes de empezar y cuánto tarda en ejecutarse.
+public class LaneExecutor implements Executor {
+
+    public static final int PRIORITY_HIGH = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_LOW = 2;
+
+    private final String name;
+    private final ThreadPoolExecutor pool;
+    private final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final LatencyHistogram runTimes = new LatencyHistogram();
+
+    // threadPriority: prioridad de Android para los hilos (android.os.Process.THREAD_PRIORITY_*)
+    public LaneExecutor(String name, int threads, int threadPriority) {
+        this(name, threads, threadPriority, Process::setThreadPriority);
+    }
+
+    // prioritySetter se llama al empezar cada hilo con threadPriority; permite usar el carril
+    // sin clases de Android (p. ej. en pruebas en la JVM)
+    public LaneExecutor(String name, int threads, int threadPriority, IntConsumer prioritySetter) {
+        this.name = name;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Cola sin límite, así que el pool se queda siempre en 'threads' hilos
+        this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, queue, runnable -> {
+            Thread thread = new Thread(() -> {
+                prioritySetter.accept(threadPriority);
+                runnable.run();
+            }, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Los hilos sin trabajo se liberan y se vuelven a crear al llegar tareas
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(PRIORITY_NORMAL, task);
+    }
+
+    public void execute(int priority, Runnable task) {
+        pool.execute(new Task(priority, sequence.getAndIncrement(), task));
+        maxQueued.accumulateAndGet(queue.size(), Math::max);
+    }
+
+    // Vista de este carril con una prioridad fija, p. ej. para CompletableFuture.runAsync
+    public Executor withPriority(int priority) {
+        return task -> execute(priority, task);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueued.get();
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public LatencyHistogram getWaitTimes() {
+        return waitTimes;
+    }
+
+    public LatencyHistogram getRunTimes() {
+        return runTimes;
+    }
+
+    public String toText() {
+        return String.format(Locale.ROOT,
+                "%s: cola=%d (máx %d) activas=%d completadas=%d%n"
+                        + "  espera p50=%.1f p95=%.1f ms  ejecución p50=%.1f p95=%.1f ms%n",
+                name, getQueueDepth(), getMaxQueueDepth(), getActiveCount(), getCompletedCount(),
+                waitTimes.percentileMs(50), waitTimes.percentileMs(95),
+                runTimes.percentileMs(50), runTimes.percentileMs(95));
+    }
+
+    private final class Task implements Runnable, Comparable<Task> {
+        private final int priority;
+        private final long order;
+        private final Runnable task;
+        private final long enqueuedNanos = System.nanoTime();
+
+        Task(int priority, long order, Runnable task) {
+            this.priority = priority;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            waitTimes.recordNanos(start - enqueuedNanos);
+            try {
+                task.run();
+            } finally {
+                runTimes.recordNanos(System.nanoTime() - start);
+                completed.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.l2_20223209.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.l2_20223209.concurrent.AppExecutors;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Paquetes de imágenes guardadas para usar sin conexión: una carpeta por texto con las
+// imágenes tal como llegan del servidor. El total está acotado; al superarlo se borran las
+// imágenes más antiguas de cualquier paquete. Los nombres de archivo llevan el instante de
+// guardado, así que el orden por nombre es el orden de antigüedad. El índice se lee del
+// disco una sola vez, fuera del hilo principal; hasta entonces los paquetes se ven vacíos.
+public class CatPackStore {
+    private static final String TAG = "CatPackStore";
+    private static final String PACK_DIR = "cat_pack";
+    private static final long MAX_BYTES = 30L * 1024 * 1024;
+    // Una respuesta más grande que esto no es una imagen razonable para la presentación
+    static final long MAX_IMAGE_BYTES = 2L * 1024 * 1024;
+    private static final String TMP_SUFFIX = ".tmp";
+    private static CatPackStore instance;
+
+    private final File root;
+    private final long maxBytes;
+    // Índice en memoria: archivos por paquete, en orden de antigüedad
+    private final Map<String, List<File>> packs = new HashMap<>();
+    private long totalBytes;
+    private long sequence;
+    // La lectura del índice no toma el lock del almacenamiento, para que las consultas
+    // (p. ej. desde el hilo principal) no esperen al disco
+    private final Object loadLock = new Object();
+    private final CompletableFuture<Void> indexLoaded = new CompletableFuture<>();
+
+    CatPackStore(File root, long maxBytes) {
+        this.root = root;
+        this.maxBytes = maxBytes;
+    }
+
+    // El índice se empieza a leer en el carril de E/S al crear la instancia
+    public static synchronized CatPackStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new CatPackStore(new File(context.getApplicationContext().getFilesDir(), PACK_DIR),
+                    MAX_BYTES);
+            AppExecutors.getInstance().io().execute(instance::load);
+        }
+        return instance;
+    }
+
+    // Leer el índice del disco si aún no se leyó. Bloquea: no llamar desde el hilo principal
+    public void load() {
+        synchronized (loadLock) {
+            if (indexLoaded.isDone()) {
+                return;
+            }
+            Map<String, List<File>> found = new HashMap<>();
+            long foundBytes = loadIndex(found);
+            // Nada se agrega antes de terminar de leer (add espera a load)
+            synchronized (this) {
+                packs.putAll(found);
+                totalBytes = foundBytes;
+            }
+            indexLoaded.complete(null);
+        }
+    }
+
+    // Se completa cuando el índice ya está leído
+    public CompletableFuture<Void> whenLoaded() {
+        return indexLoaded;
+    }
+
+    // Carpeta del paquete de un texto; los espacios de los extremos no cuentan
+    static String keyOf(String text) {
+        String normalized = text != null ? text.trim() : "";
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalized.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                key.append(String.format(Locale.ROOT, "%02x", digest[i]));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Nombre único de trabajo de WorkManager para el paquete de ese texto
+    public static String workNameOf(String text) {
+        return PACK_DIR + "_" + keyOf(text);
+    }
+
+    private long loadIndex(Map<String, List<File>> found) {
+        long bytes = 0;
+        File[] dirs = root.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return 0;
+        }
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                continue;
+            }
+            List<File> images = new ArrayList<>();
+            for (File file : files) {
+                if (file.getName().endsWith(TMP_SUFFIX)) {
+                    // Escritura interrumpida
+                    file.delete();
+                } else {
+                    images.add(file);
+                    bytes += file.length();
+                }
+            }
+            Collections.sort(images);
+            found.put(dir.getName(), images);
+        }
+        return bytes;
+    }
+
+    // Guardar una imagen en el paquete del texto. Se escribe en un archivo temporal y se
+    // renombra al terminar, para que nunca se lea una imagen a medias
+    public File add(String text, InputStream image) throws IOException {
+        load();
+        String key = keyOf(text);
+        File dir = new File(root, key);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear " + dir);
+        }
+        String name;
+        synchronized (this) {
+            name = String.format(Locale.ROOT, "%013d-%06d", System.currentTimeMillis(), sequence++ % 1_000_000);
+        }
+        File tmp = new File(dir, name + TMP_SUFFIX);
+        long written = 0;
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = image.read(buffer)) != -1) {
+                written += read;
+                if (written > MAX_IMAGE_BYTES) {
+                    throw new IOException("Imagen de más de " + MAX_IMAGE_BYTES + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        File file = new File(dir, name);
+        if (written == 0 || !tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("No se pudo guardar la imagen del paquete");
+        }
+        synchronized (this) {
+            packs.computeIfAbsent(key, k -> new ArrayList<>()).add(file);
+            totalBytes += written;
+            trimToSize();
+        }
+        return file;
+    }
+
+    // Borrar las imágenes más antiguas hasta volver al límite
+    private void trimToSize() {
+        while (totalBytes > maxBytes) {
+            String oldestKey = null;
+            File oldest = null;
+            for (Map.Entry<String, List<File>> pack : packs.entrySet()) {
+                List<File> images = pack.getValue();
+                if (!images.isEmpty() && (oldest == null || images.get(0).getName().compareTo(oldest.getName()) < 0)) {
+                    oldest = images.get(0);
+                    oldestKey = pack.getKey();
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            packs.get(oldestKey).remove(0);
+            totalBytes -= oldest.length();
+            if (!oldest.delete()) {
+                Log.w(TAG, "No se pudo borrar " + oldest);
+            }
+        }
+    }
+
+    // Imágenes del paquete de ese texto, de la más antigua a la más reciente
+    public synchronized List<File> list(String text) {
+        List<File> images = packs.get(keyOf(text));
+        return images != null ? new ArrayList<>(images) : new ArrayList<>();
+    }
+
+    // Imagen en esa posición del paquete (se repiten si la presentación es más larga), o null
+    // si no queda ninguna. Conviene resolverla poco antes de mostrarla: mientras tanto
+    // trimToSize puede borrar imágenes de este paquete. Se saltan las que ya no están en disco
+    public File imageAt(String text, int index) {
+        return imageOfKey(keyOf(text), index, true);
+    }
+
+    public int count(String text) {
+        return countOfKey(keyOf(text));
+    }
+
+    // Paquete de un texto con la clave ya calculada, para consultarlo en cada imagen sin
+    // repetir el hash
+    public Pack pack(String text) {
+        return new Pack(keyOf(text));
+    }
+
+    public final class Pack {
+        private final String key;
+
+        private Pack(String key) {
+            this.key = key;
+        }
+
+        public int count() {
+            return countOfKey(key);
+        }
+
+        // Como CatPackStore.imageAt; comprueba el disco
+        public File imageAt(int index) {
+            return imageOfKey(key, index, true);
+        }
+
+        // Solo con el índice en memoria, sin tocar el disco: refleja lo que borra trimToSize,
+        // pero no un archivo borrado por fuera del índice
+        public File indexedImageAt(int index) {
+            return imageOfKey(key, index, false);
+        }
+    }
+
+    private synchronized File imageOfKey(String key, int index, boolean checkDisk) {
+        List<File> images = packs.get(key);
+        if (images == null || images.isEmpty()) {
+            return null;
+        }
+        int size = images.size();
+        if (!checkDisk) {
+            return images.get((int) (index % (long) size));
+        }
+        for (int i = 0; i < size; i++) {
+            File image = images.get((int) ((index + (long) i) % size));
+            if (image.isFile()) {
+                return image;
+            }
+        }
+        return null;
+    }
+
+    private synchronized int countOfKey(String key) {
+        List<File> images = packs.get(key);
+        return images != null ? images.size() : 0;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.l2_20223209.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.l2_20223209.network.NetworkService;
+import com.example.l2_20223209.network.RetrofitClient;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+// Descarga en segundo plano el paquete de imágenes de un texto para usarlo sin conexión.
+// Solo corre con red no medida y cargando, así que no gasta datos ni batería del usuario
+public class CatPackWorker extends Worker {
+    private static final String TAG = "CatPackWorker";
+    public static final String KEY_TEXT = "text";
+    public static final String KEY_COUNT = "count";
+    // Imágenes por paquete: unos minutos de presentación sin repetir
+    public static final int DEFAULT_PACK_SIZE = 30;
+    private static final long BACKOFF_SECONDS = 60;
+
+    public CatPackWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    // Pedir el paquete de ese texto. Si ya hay uno pendiente para el mismo texto no se agrega
+    // otro; si el paquete ya está completo el trabajo termina sin descargar nada
+    public static void enqueue(Context context, String text, int count) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CatPackWorker.class)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder()
+                        .putString(KEY_TEXT, text != null ? text.trim() : "")
+                        .putInt(KEY_COUNT, count)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                CatPackStore.workNameOf(text), ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String text = getInputData().getString(KEY_TEXT);
+        int count = getInputData().getInt(KEY_COUNT, DEFAULT_PACK_SIZE);
+        if (text == null) {
+            text = "";
+        }
+        CatPackStore store = CatPackStore.getInstance(getApplicationContext());
+        // Este hilo es del worker: se puede esperar al índice antes de contar lo que falta
+        store.load();
+        NetworkService service = RetrofitClient.getNetworkService();
+        int missing = count - store.count(text);
+        int failures = 0;
+        while (missing > 0) {
+            if (isStopped()) {
+                // Se perdió una restricción (p. ej. se desconectó el cargador); lo ya
+                // guardado queda y el resto se descarga la próxima vez
+                return Result.retry();
+            }
+            try {
+                download(store, service, text);
+                missing--;
+            } catch (IOException e) {
+                Log.w(TAG, "No se pudo descargar una imagen del paquete", e);
+                if (++failures > count) {
+                    return Result.retry();
+                }
+            }
+        }
+        return Result.success(new Data.Builder().putInt(KEY_COUNT, store.count(text)).build());
+    }
+
+    // Una imagen nueva del servidor directo al almacenamiento, sin pasar por memoria
+    private static void download(CatPackStore store, NetworkService service, String text) throws IOException {
+        Call<ResponseBody> call = text.isEmpty() ? service.getCat() : service.getCatWithText(text);
+        Response<ResponseBody> response = call.execute();
+        try (ResponseBody body = response.body()) {
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+            if (body.contentLength() > CatPackStore.MAX_IMAGE_BYTES) {
+                throw new IOException("Imagen de " + body.contentLength() + " bytes");
+            }
+            store.add(text, body.byteStream());
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package com.example.l2_20223209.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Historial en SQLite: una fila por interacción, indexada por número y por fecha, más
+// los resúmenes por hora y por día que se actualizan en la misma transacción
+public class HistoryDatabase extends SQLiteOpenHelper implements HistoryStore {
+    static final String DATABASE_NAME = "telecat_history.db";
+    private static final int DATABASE_VERSION = 4;
+    private static final int MAX_QUERY_ARGS = 500;
+    private static final int BACKFILL_CHUNK = 1000;
+    // Bytes aproximados de una fila además de su texto (número, cantidad, fecha, índices)
+    private static final int ROW_OVERHEAD_BYTES = 32;
+
+    static final String TABLE_INTERACTIONS = "interactions";
+    static final String COLUMN_NUMBER = "interaction_number";
+    static final String COLUMN_TEXT = "text";
+    static final String COLUMN_QUANTITY = "quantity";
+    static final String COLUMN_TIMESTAMP = "timestamp";
+
+    static final String TABLE_ROLLUPS = "rollups";
+    static final String TABLE_ROLLUP_TEXTS = "rollup_texts";
+    static final String COLUMN_GRANULARITY = "granularity";
+    static final String COLUMN_BUCKET = "bucket";
+    static final String COLUMN_INTERACTIONS = "interactions";
+    static final String COLUMN_IMAGES = "images";
+    static final String COLUMN_DISTINCT_TEXTS = "distinct_texts";
+    static final String COLUMN_TEXT_HASH = "text_hash";
+
+    // Valores guardados aparte de las filas, actualizados en la misma transacción que las
+    // inserciones y borrados: los agregados se leen sin recorrer la tabla
+    static final String TABLE_META = "history_meta";
+    static final String COLUMN_KEY = "key";
+    static final String COLUMN_VALUE = "value";
+    static final String META_LAST_NUMBER = "last_number";
+    static final String META_TEXT_BYTES = "text_bytes";
+    static final String META_COUNT = "count";
+    static final String META_IMAGES = "images";
+    static final String META_FIRST_NUMBER = "first_number";
+
+    private static final String INSERT_ROLLUP_TEXT = "INSERT OR IGNORE INTO " + TABLE_ROLLUP_TEXTS
+            + " (" + COLUMN_GRANULARITY + ", " + COLUMN_BUCKET + ", " + COLUMN_TEXT_HASH + ") VALUES (?, ?, ?)";
+    private static final String UPSERT_ROLLUP = "INSERT INTO " + TABLE_ROLLUPS
+            + " (" + COLUMN_GRANULARITY + ", " + COLUMN_BUCKET + ", " + COLUMN_INTERACTIONS + ", "
+            + COLUMN_IMAGES + ", " + COLUMN_DISTINCT_TEXTS + ") VALUES (?, ?, 1, ?, ?)"
+            + " ON CONFLICT (" + COLUMN_GRANULARITY + ", " + COLUMN_BUCKET + ") DO UPDATE SET "
+            + COLUMN_INTERACTIONS + " = " + COLUMN_INTERACTIONS + " + 1, "
+            + COLUMN_IMAGES + " = " + COLUMN_IMAGES + " + excluded." + COLUMN_IMAGES + ", "
+            + COLUMN_DISTINCT_TEXTS + " = " + COLUMN_DISTINCT_TEXTS + " + excluded." + COLUMN_DISTINCT_TEXTS;
+
+    public HistoryDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_INTERACTIONS + " ("
+                + COLUMN_NUMBER + " INTEGER PRIMARY KEY, "
+                + COLUMN_TEXT + " TEXT NOT NULL, "
+                + COLUMN_QUANTITY + " INTEGER NOT NULL, "
+                + COLUMN_TIMESTAMP + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX idx_interactions_timestamp ON "
+                + TABLE_INTERACTIONS + " (" + COLUMN_TIMESTAMP + ")");
+        createRollupTables(db);
+        createMetaTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            // Versión 2: resúmenes por hora y día, calculados una vez para lo ya guardado
+            createRollupTables(db);
+            backfillRollups(db);
+        }
+        if (oldVersion < 3) {
+            // Versión 3: valores para la retención, inicializados con lo ya guardado
+            createMetaTable(db);
+            db.execSQL("INSERT INTO " + TABLE_META + " SELECT '" + META_LAST_NUMBER + "', "
+                    + "IFNULL(MAX(" + COLUMN_NUMBER + "), 0) FROM " + TABLE_INTERACTIONS);
+            db.execSQL("INSERT INTO " + TABLE_META + " SELECT '" + META_TEXT_BYTES + "', "
+                    + "IFNULL(SUM(LENGTH(CAST(" + COLUMN_TEXT + " AS BLOB))), 0) FROM " + TABLE_INTERACTIONS);
+        }
+        if (oldVersion < 4) {
+            // Versión 4: agregados guardados, calculados una vez para lo ya guardado
+            db.execSQL("INSERT INTO " + TABLE_META + " SELECT '" + META_COUNT + "', "
+                    + "COUNT(*) FROM " + TABLE_INTERACTIONS);
+            db.execSQL("INSERT INTO " + TABLE_META + " SELECT '" + META_IMAGES + "', "
+                    + "IFNULL(SUM(" + COLUMN_QUANTITY + "), 0) FROM " + TABLE_INTERACTIONS);
+            db.execSQL("INSERT INTO " + TABLE_META + " SELECT '" + META_FIRST_NUMBER + "', "
+                    + "IFNULL(MIN(" + COLUMN_NUMBER + "), 0) FROM " + TABLE_INTERACTIONS);
+        }
+    }
+
+    private static void createMetaTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_META + " ("
+                + COLUMN_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_VALUE + " INTEGER NOT NULL) WITHOUT ROWID");
+    }
+
+    private static void createRollupTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ROLLUPS + " ("
+                + COLUMN_GRANULARITY + " INTEGER NOT NULL, "
+                + COLUMN_BUCKET + " INTEGER NOT NULL, "
+                + COLUMN_INTERACTIONS + " INTEGER NOT NULL, "
+                + COLUMN_IMAGES + " INTEGER NOT NULL, "
+                + COLUMN_DISTINCT_TEXTS + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_GRANULARITY + ", " + COLUMN_BUCKET + ")) WITHOUT ROWID");
+        // Huellas de los textos vistos en cada bucket, para contar textos distintos
+        db.execSQL("CREATE TABLE " + TABLE_ROLLUP_TEXTS + " ("
+                + COLUMN_GRANULARITY + " INTEGER NOT NULL, "
+                + COLUMN_BUCKET + " INTEGER NOT NULL, "
+                + COLUMN_TEXT_HASH + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_GRANULARITY + ", " + COLUMN_BUCKET + ", "
+                + COLUMN_TEXT_HASH + ")) WITHOUT ROWID");
+    }
+
+    // Recorrer por bloques las interacciones existentes y sumarlas a los resúmenes
+    private static void backfillRollups(SQLiteDatabase db) {
+        try (SQLiteStatement insertText = db.compileStatement(INSERT_ROLLUP_TEXT);
+             SQLiteStatement upsertRollup = db.compileStatement(UPSERT_ROLLUP)) {
+            int lastNumber = Integer.MIN_VALUE;
+            while (true) {
+                List<HistoryManager.Interaction> chunk = query(db,
+                        COLUMN_NUMBER + " > ?", new String[]{String.valueOf(lastNumber)},
+                        String.valueOf(BACKFILL_CHUNK));
+                for (HistoryManager.Interaction interaction : chunk) {
+                    addToRollups(insertText, upsertRollup, interaction);
+                }
+                if (chunk.size() < BACKFILL_CHUNK) {
+                    return;
+                }
+                lastNumber = chunk.get(chunk.size() - 1).getInteractionNumber();
+            }
+        }
+    }
+
+    @Override
+    public void insert(HistoryManager.Interaction interaction) {
+        insertAll(Collections.singletonList(interaction));
+    }
+
+    // Insertar muchas interacciones en una sola transacción (migración y group commit).
+    // Una interacción que ya existía se reemplaza sin volver a contarla en los resúmenes.
+    @Override
+    public void insertAll(List<HistoryManager.Interaction> interactions) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insertText = db.compileStatement(INSERT_ROLLUP_TEXT);
+             SQLiteStatement upsertRollup = db.compileStatement(UPSERT_ROLLUP);
+             SQLiteStatement loadQuantity = db.compileStatement("SELECT " + COLUMN_QUANTITY
+                     + " FROM " + TABLE_INTERACTIONS + " WHERE " + COLUMN_NUMBER + " = ?");
+             SQLiteStatement loadTextBytes = db.compileStatement("SELECT LENGTH(CAST(" + COLUMN_TEXT
+                     + " AS BLOB)) FROM " + TABLE_INTERACTIONS + " WHERE " + COLUMN_NUMBER + " = ?")) {
+            int firstNumber = 0;
+            int lastNumber = 0;
+            long count = 0;
+            long images = 0;
+            long textBytes = 0;
+            for (HistoryManager.Interaction interaction : interactions) {
+                ContentValues values = toValues(interaction);
+                int number = interaction.getInteractionNumber();
+                if (db.insertWithOnConflict(TABLE_INTERACTIONS, null, values,
+                        SQLiteDatabase.CONFLICT_IGNORE) == -1) {
+                    // Reemplazo: los agregados cambian solo por la diferencia con la fila anterior
+                    loadQuantity.bindLong(1, number);
+                    loadTextBytes.bindLong(1, number);
+                    images -= loadQuantity.simpleQueryForLong();
+                    textBytes -= loadTextBytes.simpleQueryForLong();
+                    db.update(TABLE_INTERACTIONS, values, COLUMN_NUMBER + " = ?",
+                            new String[]{String.valueOf(number)});
+                } else {
+                    addToRollups(insertText, upsertRollup, interaction);
+                    count++;
+                    firstNumber = firstNumber == 0 ? number : Math.min(firstNumber, number);
+                }
+                images += interaction.getQuantity();
+                textBytes += textBytes(interaction.getText());
+                lastNumber = Math.max(lastNumber, number);
+            }
+            raiseLastNumber(db, lastNumber);
+            if (firstNumber > 0) {
+                // Sin filas la primera es 0: se toma la nueva; si no, la menor de las dos
+                db.execSQL("INSERT INTO " + TABLE_META + " VALUES (?, ?) ON CONFLICT (" + COLUMN_KEY
+                        + ") DO UPDATE SET " + COLUMN_VALUE + " = CASE WHEN " + COLUMN_VALUE + " = 0 THEN excluded."
+                        + COLUMN_VALUE + " ELSE MIN(" + COLUMN_VALUE + ", excluded." + COLUMN_VALUE + ") END",
+                        new Object[]{META_FIRST_NUMBER, firstNumber});
+            }
+            addMeta(db, META_COUNT, count);
+            addMeta(db, META_IMAGES, images);
+            addMeta(db, META_TEXT_BYTES, textBytes);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void addToRollups(SQLiteStatement insertText, SQLiteStatement upsertRollup,
+                                     HistoryManager.Interaction interaction) {
+        long textHash = HistoryRollup.textHash(interaction.getText());
+        for (int granularity : new int[]{HistoryRollup.HOURLY, HistoryRollup.DAILY}) {
+            long bucket = HistoryRollup.bucketOf(granularity, interaction.getTimestamp());
+            insertText.bindLong(1, granularity);
+            insertText.bindLong(2, bucket);
+            insertText.bindLong(3, textHash);
+            // Si el texto es nuevo en el bucket, suma un texto distinto
+            int newText = insertText.executeUpdateDelete();
+
+            upsertRollup.bindLong(1, granularity);
+            upsertRollup.bindLong(2, bucket);
+            upsertRollup.bindLong(3, interaction.getQuantity());
+            upsertRollup.bindLong(4, newText);
+            upsertRollup.executeUpdateDelete();
+        }
+    }
+
+    @Override
+    public void clear() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_INTERACTIONS, null, null);
+            db.delete(TABLE_ROLLUPS, null, null);
+            db.delete(TABLE_ROLLUP_TEXTS, null, null);
+            db.delete(TABLE_META, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public HistoryManager.Interaction load(int interactionNumber) {
+        List<HistoryManager.Interaction> range = loadRange(interactionNumber, interactionNumber);
+        return range.isEmpty() ? null : range.get(0);
+    }
+
+    @Override
+    public List<HistoryManager.Interaction> loadNumbers(int[] interactionNumbers) {
+        List<HistoryManager.Interaction> interactions = new ArrayList<>();
+        // Consultas por bloques para no superar el límite de parámetros de SQLite
+        for (int start = 0; start < interactionNumbers.length; start += MAX_QUERY_ARGS) {
+            int end = Math.min(interactionNumbers.length, start + MAX_QUERY_ARGS);
+            StringBuilder placeholders = new StringBuilder();
+            String[] args = new String[end - start];
+            for (int i = start; i < end; i++) {
+                placeholders.append(i == start ? "?" : ",?");
+                args[i - start] = String.valueOf(interactionNumbers[i]);
+            }
+            interactions.addAll(query(COLUMN_NUMBER + " IN (" + placeholders + ")", args));
+        }
+        return interactions;
+    }
+
+    @Override
+    public List<HistoryManager.Interaction> loadAll() {
+        return query(null, null);
+    }
+
+    // Búsqueda por clave primaria
+    @Override
+    public List<HistoryManager.Interaction> loadRange(int fromNumber, int toNumber) {
+        return query(COLUMN_NUMBER + " BETWEEN ? AND ?",
+                new String[]{String.valueOf(fromNumber), String.valueOf(toNumber)});
+    }
+
+    private List<HistoryManager.Interaction> query(String selection, String[] selectionArgs) {
+        return query(getReadableDatabase(), selection, selectionArgs, null);
+    }
+
+    private static List<HistoryManager.Interaction> query(SQLiteDatabase db, String selection,
+                                                          String[] selectionArgs, String limit) {
+        List<HistoryManager.Interaction> interactions = new ArrayList<>();
+        try (Cursor cursor = db.query(TABLE_INTERACTIONS,
+                new String[]{COLUMN_TEXT, COLUMN_QUANTITY, COLUMN_TIMESTAMP, COLUMN_NUMBER},
+                selection, selectionArgs, null, null,
+                COLUMN_NUMBER + " ASC", limit)) {
+            while (cursor.moveToNext()) {
+                interactions.add(new HistoryManager.Interaction(
+                        cursor.getString(0),
+                        cursor.getInt(1),
+                        cursor.getLong(2),
+                        cursor.getInt(3)));
+            }
+        }
+        return interactions;
+    }
+
+    // Leídos de history_meta: no depende de la cantidad de interacciones
+    @Override
+    public long[] loadAggregates() {
+        SQLiteDatabase db = getReadableDatabase();
+        return new long[]{readMeta(db, META_COUNT), readMeta(db, META_IMAGES),
+                readMeta(db, META_FIRST_NUMBER), readMeta(db, META_LAST_NUMBER)};
+    }
+
+    @Override
+    public long estimateSizeBytes() {
+        SQLiteDatabase db = getReadableDatabase();
+        return readMeta(db, META_COUNT) * ROW_OVERHEAD_BYTES + readMeta(db, META_TEXT_BYTES);
+    }
+
+    // Usa el índice por fecha
+    @Override
+    public int findLastNumberBefore(long timestamp) {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT IFNULL(MAX(" + COLUMN_NUMBER + "), 0) FROM "
+                + TABLE_INTERACTIONS + " WHERE " + COLUMN_TIMESTAMP + " < ?",
+                new String[]{String.valueOf(timestamp)})) {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        }
+    }
+
+    // Las filas de resúmenes no se tocan: lo compactado sigue contando en las estadísticas
+    @Override
+    public long[] deleteThrough(int lastNumber) {
+        SQLiteDatabase db = getWritableDatabase();
+        String[] args = new String[]{String.valueOf(lastNumber)};
+        db.beginTransaction();
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*), IFNULL(SUM(" + COLUMN_QUANTITY + "), 0), "
+                + "IFNULL(SUM(LENGTH(CAST(" + COLUMN_TEXT + " AS BLOB))), 0) FROM " + TABLE_INTERACTIONS
+                + " WHERE " + COLUMN_NUMBER + " <= ?", args)) {
+            cursor.moveToFirst();
+            long[] removed = new long[]{cursor.getLong(0), cursor.getLong(1)};
+            db.delete(TABLE_INTERACTIONS, COLUMN_NUMBER + " <= ?", args);
+            addMeta(db, META_COUNT, -removed[0]);
+            addMeta(db, META_IMAGES, -removed[1]);
+            addMeta(db, META_TEXT_BYTES, -cursor.getLong(2));
+            // La nueva primera por la clave primaria, sin recorrer la tabla
+            db.execSQL("INSERT OR REPLACE INTO " + TABLE_META + " SELECT '" + META_FIRST_NUMBER + "', "
+                    + "IFNULL(MIN(" + COLUMN_NUMBER + "), 0) FROM " + TABLE_INTERACTIONS);
+            db.setTransactionSuccessful();
+            return removed;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static long readMeta(SQLiteDatabase db, String key) {
+        try (Cursor cursor = db.query(TABLE_META, new String[]{COLUMN_VALUE},
+                COLUMN_KEY + " = ?", new String[]{key}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    private static void raiseLastNumber(SQLiteDatabase db, long lastNumber) {
+        db.execSQL("INSERT INTO " + TABLE_META + " VALUES (?, ?) ON CONFLICT (" + COLUMN_KEY
+                + ") DO UPDATE SET " + COLUMN_VALUE + " = MAX(" + COLUMN_VALUE + ", excluded." + COLUMN_VALUE + ")",
+                new Object[]{META_LAST_NUMBER, lastNumber});
+    }
+
+    private static void addMeta(SQLiteDatabase db, String key, long delta) {
+        db.execSQL("INSERT INTO " + TABLE_META + " VALUES (?, ?) ON CONFLICT (" + COLUMN_KEY
+                + ") DO UPDATE SET " + COLUMN_VALUE + " = MAX(0, " + COLUMN_VALUE + " + excluded." + COLUMN_VALUE + ")",
+                new Object[]{key, delta});
+    }
+
+    private static int textBytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Override
+    public List<HistoryRollup> loadRollups(int granularity, long fromBucket, long toBucket) {
+        List<HistoryRollup> rollups = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_ROLLUPS,
+                new String[]{COLUMN_BUCKET, COLUMN_INTERACTIONS, COLUMN_IMAGES, COLUMN_DISTINCT_TEXTS},
+                COLUMN_GRANULARITY + " = ? AND " + COLUMN_BUCKET + " BETWEEN ? AND ?",
+                rollupArgs(granularity, fromBucket, toBucket), null, null,
+                COLUMN_BUCKET + " ASC")) {
+            while (cursor.moveToNext()) {
+                rollups.add(new HistoryRollup(granularity, cursor.getLong(0), cursor.getLong(0),
+                        cursor.getInt(1), cursor.getLong(2), cursor.getInt(3)));
+            }
+        }
+        return rollups;
+    }
+
+    // Las sumas recorren los buckets del rango; los textos distintos, sus huellas
+    @Override
+    public HistoryRollup loadRollupTotal(int granularity, long fromBucket, long toBucket) {
+        String range = " WHERE " + COLUMN_GRANULARITY + " = ? AND " + COLUMN_BUCKET + " BETWEEN ? AND ?";
+        String[] args = rollupArgs(granularity, fromBucket, toBucket);
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor totals = db.rawQuery("SELECT IFNULL(SUM(" + COLUMN_INTERACTIONS + "), 0), "
+                + "IFNULL(SUM(" + COLUMN_IMAGES + "), 0) FROM " + TABLE_ROLLUPS + range, args);
+             Cursor texts = db.rawQuery("SELECT COUNT(DISTINCT " + COLUMN_TEXT_HASH + ") FROM "
+                     + TABLE_ROLLUP_TEXTS + range, args)) {
+            totals.moveToFirst();
+            texts.moveToFirst();
+            return new HistoryRollup(granularity, fromBucket, toBucket,
+                    totals.getInt(0), totals.getLong(1), texts.getInt(0));
+        }
+    }
+
+    // Todos los resúmenes (de las filas vivas y de lo compactado), para migrar a otro almacenamiento
+    RollupTable loadRollupTable() {
+        RollupTable table = new RollupTable();
+        SQLiteDatabase db = getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_ROLLUPS,
+                new String[]{COLUMN_GRANULARITY, COLUMN_BUCKET, COLUMN_INTERACTIONS, COLUMN_IMAGES},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                table.addBucket(cursor.getInt(0), cursor.getLong(1), cursor.getInt(2), cursor.getLong(3),
+                        Collections.emptyList());
+            }
+        }
+        try (Cursor cursor = db.query(TABLE_ROLLUP_TEXTS,
+                new String[]{COLUMN_GRANULARITY, COLUMN_BUCKET, COLUMN_TEXT_HASH},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                table.addBucket(cursor.getInt(0), cursor.getLong(1), 0, 0,
+                        Collections.singletonList(cursor.getLong(2)));
+            }
+        }
+        return table;
+    }
+
+    // Sumar a los resúmenes lo compactado en otro almacenamiento y continuar su numeración
+    void importCompacted(RollupTable compacted, int lastNumber) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insertText = db.compileStatement(INSERT_ROLLUP_TEXT)) {
+            compacted.forEachBucket((granularity, bucket, interactions, imagesViewed, textHashes) -> {
+                int newTexts = 0;
+                for (long textHash : textHashes) {
+                    insertText.bindLong(1, granularity);
+                    insertText.bindLong(2, bucket);
+                    insertText.bindLong(3, textHash);
+                    newTexts += insertText.executeUpdateDelete();
+                }
+                db.execSQL("INSERT INTO " + TABLE_ROLLUPS + " VALUES (?, ?, ?, ?, ?) ON CONFLICT ("
+                        + COLUMN_GRANULARITY + ", " + COLUMN_BUCKET + ") DO UPDATE SET "
+                        + COLUMN_INTERACTIONS + " = " + COLUMN_INTERACTIONS + " + excluded." + COLUMN_INTERACTIONS + ", "
+                        + COLUMN_IMAGES + " = " + COLUMN_IMAGES + " + excluded." + COLUMN_IMAGES + ", "
+                        + COLUMN_DISTINCT_TEXTS + " = " + COLUMN_DISTINCT_TEXTS + " + excluded." + COLUMN_DISTINCT_TEXTS,
+                        new Object[]{granularity, bucket, interactions, imagesViewed, newTexts});
+            });
+            raiseLastNumber(db, lastNumber);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String[] rollupArgs(int granularity, long fromBucket, long toBucket) {
+        return new String[]{String.valueOf(granularity), String.valueOf(fromBucket), String.valueOf(toBucket)};
+    }
+
+    private static ContentValues toValues(HistoryManager.Interaction interaction) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NUMBER, interaction.getInteractionNumber());
+        values.put(COLUMN_TEXT, interaction.getText());
+        values.put(COLUMN_QUANTITY, interaction.getQuantity());
+        values.put(COLUMN_TIMESTAMP, interaction.getTimestamp());
+        return values;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.l2_20223209.data;
+
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lector del log antiguo de solo-anexado (una interacción por línea, JSON Lines).
+// Solo se usa para migrar su contenido a HistoryDatabase.
+public class HistoryLog {
+
+    private final File file;
+    private final Gson gson;
+
+    public HistoryLog(File file, Gson gson) {
+        this.file = file;
+        this.gson = gson;
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    public boolean delete() {
+        return file.delete();
+    }
+
+    // Leer todos los registros; las líneas corruptas (p. ej. una escritura cortada) se ignoran.
+    // Un error de lectura se propaga para no borrar el log habiendo leído solo una parte
+    public List<HistoryManager.Interaction> readAll() throws IOException {
+        List<HistoryManager.Interaction> interactions = new ArrayList<>();
+        if (!file.exists()) {
+            return interactions;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                HistoryManager.Interaction interaction = parseLine(line);
+                if (interaction != null) {
+                    interactions.add(interaction);
+                }
+            }
+        }
+        return interactions;
+    }
+
+    private HistoryManager.Interaction parseLine(String line) {
+        if (line.isEmpty()) {
+            return null;
+        }
+        try {
+            return gson.fromJson(line, HistoryManager.Interaction.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+}
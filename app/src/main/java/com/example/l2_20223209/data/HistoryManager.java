@@ -2,27 +2,169 @@ package com.example.l2_20223209.data;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.l2_20223209.BuildConfig;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.GsonBuilder;
 
-import java.lang.reflect.Type;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class HistoryManager {
+    private static final String TAG = "HistoryManager";
     private static final String PREFS_NAME = "telecat_history";
     private static final String HISTORY_KEY = "interaction_history";
+    private static final String HISTORY_LOG_FILE = "interaction_history.log";
+    private static final String HISTORY_RECORDS_FILE = "interaction_history.bin";
+    private static final String HISTORY_TEXTS_FILE = "interaction_texts.bin";
+    private static final String HISTORY_ROLLUPS_FILE = "interaction_rollups.bin";
+    // Almacenamiento elegido; por defecto el de la configuración de compilación
+    private static final String BACKEND_KEY = "history_backend";
+    private static final String BACKEND_SQLITE = "sqlite";
+    private static final String BACKEND_MAPPED = "mapped";
+    private static final int INDEX_BUILD_CHUNK = 1000;
+    // Cada cuántas interacciones nuevas se revisa la retención
+    private static final int COMPACT_EVERY = 100;
     private static HistoryManager instance;
     
     private Context context;
-    private SharedPreferences prefs;
     private Gson gson;
+    // Único escritor: serializa escrituras y lecturas y mantiene los agregados
+    private HistoryWriter writer;
+    // Índice de búsqueda sobre los textos, mantenido al agregar interacciones
+    private HistorySearchIndex searchIndex;
+    // Límites del historial; lo que los supere se compacta en los resúmenes
+    private volatile HistoryRetention retention = HistoryRetention.DEFAULT;
+    private final AtomicInteger addsSinceCompaction = new AtomicInteger();
     
     private HistoryManager(Context context) {
         this.context = context.getApplicationContext();
-        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.gson = new Gson();
+        this.gson = new GsonBuilder()
+                .registerTypeAdapter(Interaction.class, InteractionJson.ADAPTER)
+                .create();
+        
+        // El almacenamiento se abre y migra en el hilo escritor, no en el que pide la
+        // instancia (normalmente el principal). Los agregados se leen del almacenamiento sin
+        // cargar las interacciones. El índice se actualiza en el hilo escritor después de cada
+        // commit, así que recibe las interacciones en orden de número aunque se agreguen
+        // desde varios hilos
+        this.searchIndex = new HistorySearchIndex();
+        this.writer = new HistoryWriter(() -> {
+            HistoryStore store = openStore();
+            migrateLegacyHistory(store);
+            return store;
+        }, new HistoryWriter.Listener() {
+            @Override
+            public void onAdded(List<Interaction> interactions) {
+                searchIndex.addAll(interactions);
+            }
+
+            @Override
+            public void onCleared() {
+                searchIndex.clear();
+            }
+        });
+        buildSearchIndex();
+        compactHistory();
+    }
+    
+    // Almacenamientos del historial: SQLite o el archivo binario mapeado en memoria
+    public enum Backend { SQLITE, MAPPED }
+    
+    public static Backend getBackend(Context context) {
+        String backend = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(BACKEND_KEY, BuildConfig.HISTORY_BACKEND);
+        return BACKEND_MAPPED.equals(backend) ? Backend.MAPPED : Backend.SQLITE;
+    }
+    
+    // Se aplica al próximo inicio de la app: el historial se migra al abrirlo
+    public static void setBackend(Context context, Backend backend) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putString(BACKEND_KEY, backend == Backend.MAPPED ? BACKEND_MAPPED : BACKEND_SQLITE)
+                .apply();
+    }
+    
+    // Abrir el almacenamiento elegido. Si el historial está en el otro, se copia y el otro se
+    // borra solo si la copia quedó completa; si no, se sigue usando el anterior
+    private HistoryStore openStore() {
+        boolean hasDatabase = context.getDatabasePath(HistoryDatabase.DATABASE_NAME).exists();
+        boolean hasMappedFiles = mappedFile(HISTORY_RECORDS_FILE).exists();
+        if (getBackend(context) == Backend.MAPPED) {
+            MappedHistoryStore mapped = openMappedStore();
+            if (mapped != null) {
+                if (!hasDatabase) {
+                    return mapped;
+                }
+                HistoryDatabase database = new HistoryDatabase(context);
+                try {
+                    if (HistoryStoreMigration.copy(database, mapped)) {
+                        database.close();
+                        context.deleteDatabase(HistoryDatabase.DATABASE_NAME);
+                        return mapped;
+                    }
+                    Log.e(TAG, "La copia al historial binario quedó incompleta, se sigue con SQLite");
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "No se pudo migrar al historial binario, se sigue con SQLite", e);
+                }
+                deleteMappedStore(mapped);
+                return database;
+            }
+            // Sin el binario, SQLite (y si el historial estaba en el binario, se intenta copiar)
+        }
+        HistoryDatabase database = new HistoryDatabase(context);
+        if (hasMappedFiles) {
+            MappedHistoryStore mapped = openMappedStore();
+            if (mapped == null) {
+                return database;
+            }
+            try {
+                if (HistoryStoreMigration.copy(mapped, database)) {
+                    deleteMappedStore(mapped);
+                    return database;
+                }
+                Log.e(TAG, "La copia a SQLite quedó incompleta, se sigue con el historial binario");
+            } catch (RuntimeException e) {
+                Log.e(TAG, "No se pudo migrar a SQLite, se sigue con el historial binario", e);
+            }
+            database.close();
+            context.deleteDatabase(HistoryDatabase.DATABASE_NAME);
+            return mapped;
+        }
+        return database;
+    }
+    
+    private File mappedFile(String name) {
+        return new File(context.getFilesDir(), name);
+    }
+    
+    private MappedHistoryStore openMappedStore() {
+        try {
+            return new MappedHistoryStore(mappedFile(HISTORY_RECORDS_FILE),
+                    mappedFile(HISTORY_TEXTS_FILE), mappedFile(HISTORY_ROLLUPS_FILE));
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudo abrir el historial binario", e);
+            return null;
+        }
+    }
+    
+    private void deleteMappedStore(MappedHistoryStore mapped) {
+        try {
+            mapped.close();
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo cerrar el historial binario", e);
+        }
+        for (String name : new String[]{HISTORY_RECORDS_FILE, HISTORY_TEXTS_FILE, HISTORY_ROLLUPS_FILE}) {
+            mappedFile(name).delete();
+        }
     }
     
     public static synchronized HistoryManager getInstance(Context context) {
@@ -46,6 +188,13 @@ public class HistoryManager {
             this.interactionNumber = interactionNumber;
         }
         
+        public Interaction(String text, int quantity, long timestamp, int interactionNumber) {
+            this.text = text != null ? text : "";
+            this.quantity = quantity;
+            this.timestamp = timestamp;
+            this.interactionNumber = interactionNumber;
+        }
+        
         // Getters
         public String getText() { return text; }
         public int getQuantity() { return quantity; }
@@ -61,34 +210,129 @@ public class HistoryManager {
         }
     }
     
-    // Agregar nueva interacción
-    public void addInteraction(String text, int quantity) {
-        List<Interaction> history = getHistory();
-        int interactionNumber = history.size() + 1;
-        
-        Interaction newInteraction = new Interaction(text, quantity, interactionNumber);
-        history.add(newInteraction);
-        
-        saveHistory(history);
+    // Migrar los formatos antiguos al almacenamiento actual: primero el log de solo-anexado
+    // (que ya incluye el JSON de SharedPreferences si existía) y si no, el JSON directamente.
+    // El formato antiguo se borra solo después de guardarlo; si algo falla se conserva y se
+    // reintenta en el próximo inicio (insertAll reemplaza lo ya migrado, no lo duplica)
+    private void migrateLegacyHistory(HistoryStore store) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        HistoryLog historyLog = new HistoryLog(new File(context.getFilesDir(), HISTORY_LOG_FILE), gson);
+        try {
+            if (historyLog.exists()) {
+                store.insertAll(historyLog.readAll());
+                historyLog.delete();
+            } else if (prefs.contains(HISTORY_KEY)) {
+                String historyJson = prefs.getString(HISTORY_KEY, "[]");
+                store.insertAll(InteractionJson.readAll(new StringReader(historyJson)));
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "No se pudo migrar el historial antiguo; se reintentará", e);
+            return;
+        }
+        if (prefs.contains(HISTORY_KEY)) {
+            prefs.edit().remove(HISTORY_KEY).commit();
+        }
+    }
+    
+    // Se completa cuando el historial ya está abierto: desde entonces los totales y el primer
+    // número reflejan lo guardado (antes son 0)
+    public CompletableFuture<Void> whenOpened() {
+        return writer.whenOpened();
+    }
+    
+    // Construir el índice de búsqueda en el hilo escritor, por bloques, antes de
+    // cualquier escritura posterior
+    private void buildSearchIndex() {
+        writer.read(historyStore -> {
+            long[] aggregates = historyStore.loadAggregates();
+            for (long from = aggregates[2]; from > 0 && from <= aggregates[3]; from += INDEX_BUILD_CHUNK) {
+                searchIndex.addAll(historyStore.loadRange((int) from,
+                        (int) Math.min(aggregates[3], from + INDEX_BUILD_CHUNK - 1)));
+            }
+            return null;
+        });
+    }
+    
+    // Agregar nueva interacción. El llamador no espera al disco; el future se completa
+    // cuando la interacción ya está guardada
+    public CompletableFuture<Interaction> addInteraction(String text, int quantity) {
+        CompletableFuture<Interaction> future = writer.add(text, quantity);
+        if (addsSinceCompaction.incrementAndGet() % COMPACT_EVERY == 0) {
+            compactHistory();
+        }
+        return future;
+    }
+    
+    // Cambiar los límites del historial y aplicarlos de inmediato
+    public void setRetention(HistoryRetention retention) {
+        this.retention = retention;
+        compactHistory();
     }
     
-    // Obtener historial completo
+    // Compactar en segundo plano (hilo escritor) las interacciones que superan la retención:
+    // se borran del historial y quedan en los resúmenes por hora y día. La numeración no
+    // cambia: la lista simplemente empieza en una interacción posterior.
+    // Devuelve el número de la última interacción compactada, o 0 si no hubo nada que compactar
+    public CompletableFuture<Integer> compactHistory() {
+        CompletableFuture<Integer> future = writer.compact(retention, System.currentTimeMillis());
+        future.thenAccept(lastNumber -> {
+            if (lastNumber > 0) {
+                searchIndex.removeThrough(lastNumber);
+                Log.d(TAG, "Historial compactado hasta la interacción " + lastNumber);
+            }
+        });
+        return future;
+    }
+    
+    // Buscar interacciones por su texto; devuelve sus números en orden creciente
+    public int[] search(String query) {
+        return searchIndex.search(query);
+    }
+    
+    // Obtener historial completo (lectura de todas las filas; preferir loadRange para la UI)
     public List<Interaction> getHistory() {
-        String historyJson = prefs.getString(HISTORY_KEY, "[]");
-        Type listType = new TypeToken<List<Interaction>>(){}.getType();
-        List<Interaction> history = gson.fromJson(historyJson, listType);
-        return history != null ? history : new ArrayList<>();
+        try {
+            return writer.read(HistoryStore::loadAll).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>();
+        } catch (ExecutionException e) {
+            return new ArrayList<>();
+        }
+    }
+    
+    // Cargar las interacciones con número en [fromNumber, toNumber] en segundo plano; se ejecuta
+    // después de las escrituras pendientes, así que siempre incluye las interacciones ya agregadas
+    public void loadRange(int fromNumber, int toNumber, Consumer<List<Interaction>> callback) {
+        writer.read(historyStore -> historyStore.loadRange(fromNumber, toNumber)).thenAccept(callback);
     }
     
-    // Guardar historial
-    private void saveHistory(List<Interaction> history) {
-        String historyJson = gson.toJson(history);
-        prefs.edit().putString(HISTORY_KEY, historyJson).apply();
+    // Cargar las interacciones con esos números en segundo plano (p. ej. resultados de búsqueda)
+    public void loadNumbers(int[] interactionNumbers, Consumer<List<Interaction>> callback) {
+        writer.read(historyStore -> historyStore.loadNumbers(interactionNumbers)).thenAccept(callback);
+    }
+    
+    // Resumen por bucket (hora o día) de las interacciones entre dos instantes, leído de los
+    // resúmenes precalculados: el costo depende de la cantidad de buckets, no de interacciones
+    public void loadRollups(int granularity, long fromTime, long toTime,
+                            Consumer<List<HistoryRollup>> callback) {
+        long fromBucket = HistoryRollup.bucketOf(granularity, fromTime);
+        long toBucket = HistoryRollup.bucketOf(granularity, toTime);
+        writer.read(historyStore -> historyStore.loadRollups(granularity, fromBucket, toBucket))
+                .thenAccept(callback);
+    }
+    
+    // Un solo resumen (interacciones, imágenes y textos distintos) entre dos instantes
+    public void loadStats(int granularity, long fromTime, long toTime, Consumer<HistoryRollup> callback) {
+        long fromBucket = HistoryRollup.bucketOf(granularity, fromTime);
+        long toBucket = HistoryRollup.bucketOf(granularity, toTime);
+        writer.read(historyStore -> historyStore.loadRollupTotal(granularity, fromBucket, toBucket))
+                .thenAccept(callback);
     }
     
     // Limpiar historial (para reiniciar el juego)
-    public void clearHistory() {
-        prefs.edit().remove(HISTORY_KEY).apply();
+    public CompletableFuture<Void> clearHistory() {
+        return writer.clear();
     }
     
     // Método adicional: obtener si hay historial
@@ -98,16 +342,22 @@ public class HistoryManager {
     
     // Obtener número total de interacciones
     public int getTotalInteractions() {
-        return getHistory().size();
+        return writer.getTotalInteractions();
     }
     
     // Obtener total de imágenes vistas
     public int getTotalImagesViewed() {
-        List<Interaction> history = getHistory();
-        int total = 0;
-        for (Interaction interaction : history) {
-            total += interaction.getQuantity();
-        }
-        return total;
+        return (int) writer.getTotalImagesViewed();
+    }
+    
+    // Obtener el número de la primera interacción registrada (los números son contiguos
+    // hasta la última, así que la posición k de la lista es la interacción primera + k)
+    public int getFirstInteractionNumber() {
+        return writer.getFirstInteractionNumber();
+    }
+    
+    // Obtener el número de la última interacción registrada
+    public int getLastInteractionNumber() {
+        return writer.getLastInteractionNumber();
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.example.l2_20223209.data;
+
+// Límites de retención del historial. Lo que los supere se compacta: las interacciones más
+// antiguas se borran y quedan solo en los resúmenes por hora y día. Un límite <= 0 no aplica.
+public final class HistoryRetention {
+
+    public static final HistoryRetention DEFAULT =
+            new HistoryRetention(10_000, 365L * HistoryRollup.DAY_MS, 4L * 1024L * 1024L);
+    public static final HistoryRetention UNLIMITED = new HistoryRetention(0, 0, 0);
+
+    // Al superar el límite de bytes se compacta hasta este porcentaje, para no compactar
+    // de nuevo con cada interacción
+    static final int BYTES_TARGET_PERCENT = 90;
+
+    private final int maxEntries;
+    private final long maxAgeMs;
+    private final long maxBytes;
+
+    public HistoryRetention(int maxEntries, long maxAgeMs, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxAgeMs = maxAgeMs;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+    public long getMaxAgeMs() { return maxAgeMs; }
+    public long getMaxBytes() { return maxBytes; }
+
+    // Número de la última interacción a compactar (0 si no hay que compactar nada), dados
+    // los agregados actuales {cantidad, imágenes, primera, última}, el tamaño ocupado y la
+    // última interacción más antigua que maxAgeMs
+    int cutoff(long[] aggregates, long sizeBytes, int lastExpiredNumber) {
+        long count = aggregates[0];
+        int first = (int) aggregates[2];
+        if (count == 0) {
+            return 0;
+        }
+        long remove = 0;
+        if (maxEntries > 0 && count > maxEntries) {
+            remove = count - maxEntries;
+        }
+        if (maxBytes > 0 && sizeBytes > maxBytes) {
+            long bytesPerEntry = Math.max(1, sizeBytes / count);
+            long excess = sizeBytes - maxBytes * BYTES_TARGET_PERCENT / 100;
+            remove = Math.max(remove, (excess + bytesPerEntry - 1) / bytesPerEntry);
+        }
+        int cutoff = remove > 0 ? (int) Math.min(aggregates[3], first + Math.min(remove, count) - 1) : 0;
+        if (maxAgeMs > 0) {
+            cutoff = Math.max(cutoff, lastExpiredNumber);
+        }
+        return cutoff;
+    }
+}
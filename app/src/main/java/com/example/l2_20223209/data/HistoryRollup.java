@@ -0,0 +1,69 @@
+package com.example.l2_20223209.data;
+
+import java.util.TimeZone;
+
+// Resumen precalculado de las interacciones de un intervalo de tiempo: cantidad de
+// interacciones, imágenes vistas y textos distintos. Los intervalos (buckets) son horas
+// (UTC) o días (hora local); un resumen puede cubrir un solo bucket o un rango de ellos.
+public final class HistoryRollup {
+    public static final int HOURLY = 0;
+    public static final int DAILY = 1;
+
+    static final long HOUR_MS = 60L * 60L * 1000L;
+    static final long DAY_MS = 24L * HOUR_MS;
+
+    private final int granularity;
+    private final long fromBucket;
+    private final long toBucket;
+    private final int interactions;
+    private final long imagesViewed;
+    private final int distinctTexts;
+
+    public HistoryRollup(int granularity, long fromBucket, long toBucket,
+                         int interactions, long imagesViewed, int distinctTexts) {
+        this.granularity = granularity;
+        this.fromBucket = fromBucket;
+        this.toBucket = toBucket;
+        this.interactions = interactions;
+        this.imagesViewed = imagesViewed;
+        this.distinctTexts = distinctTexts;
+    }
+
+    public int getGranularity() { return granularity; }
+    public long getFromBucket() { return fromBucket; }
+    public long getToBucket() { return toBucket; }
+    public int getInteractions() { return interactions; }
+    public long getImagesViewed() { return imagesViewed; }
+    public int getDistinctTexts() { return distinctTexts; }
+
+    // Inicio (en milisegundos) del primer bucket del resumen
+    public long getStartTime() {
+        return bucketStart(granularity, fromBucket);
+    }
+
+    // Bucket al que pertenece un instante
+    public static long bucketOf(int granularity, long timestamp) {
+        if (granularity == HOURLY) {
+            return Math.floorDiv(timestamp, HOUR_MS);
+        }
+        return Math.floorDiv(timestamp + TimeZone.getDefault().getOffset(timestamp), DAY_MS);
+    }
+
+    public static long bucketStart(int granularity, long bucket) {
+        if (granularity == HOURLY) {
+            return bucket * HOUR_MS;
+        }
+        long localStart = bucket * DAY_MS;
+        return localStart - TimeZone.getDefault().getOffset(localStart);
+    }
+
+    // Huella de 64 bits del texto (FNV-1a) para contar textos distintos sin guardarlos otra vez
+    static long textHash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.l2_20223209.data;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Índice invertido sobre los textos de las interacciones: token normalizado -> números
+// de interacción. Se mantiene incrementalmente al agregar interacciones. Los tokens se
+// normalizan sin tildes ni mayúsculas, así que "Gató" encuentra "gato".
+public class HistorySearchIndex {
+
+    // Tokens ordenados para poder buscar por prefijo
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+
+    public synchronized void add(HistoryManager.Interaction interaction) {
+        for (String token : tokenize(interaction.getText())) {
+            Postings list = postings.get(token);
+            if (list == null) {
+                list = new Postings();
+                postings.put(token, list);
+            }
+            list.add(interaction.getInteractionNumber());
+        }
+    }
+
+    public synchronized void addAll(List<HistoryManager.Interaction> interactions) {
+        for (HistoryManager.Interaction interaction : interactions) {
+            add(interaction);
+        }
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+    }
+
+    // Quitar las interacciones compactadas (número <= lastNumber)
+    public synchronized void removeThrough(int lastNumber) {
+        Iterator<Postings> lists = postings.values().iterator();
+        while (lists.hasNext()) {
+            Postings list = lists.next();
+            list.removeThrough(lastNumber);
+            if (list.size == 0) {
+                lists.remove();
+            }
+        }
+    }
+
+    // Números de las interacciones (en orden creciente) cuyo texto contiene todas las
+    // palabras de la consulta; cada palabra coincide como prefijo ("gat" encuentra "gatos")
+    public synchronized int[] search(String query) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new int[0];
+        }
+        int[] result = null;
+        for (String token : tokens) {
+            int[] matches = matchPrefix(token);
+            result = result == null ? matches : intersect(result, matches);
+            if (result.length == 0) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private int[] matchPrefix(String prefix) {
+        SortedMap<String, Postings> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.isEmpty()) {
+            return new int[0];
+        }
+        if (range.size() == 1) {
+            return range.values().iterator().next().toArray();
+        }
+        int total = 0;
+        for (Postings list : range.values()) {
+            total += list.size;
+        }
+        int[] merged = new int[total];
+        int position = 0;
+        for (Map.Entry<String, Postings> entry : range.entrySet()) {
+            Postings list = entry.getValue();
+            System.arraycopy(list.numbers, 0, merged, position, list.size);
+            position += list.size;
+        }
+        Arrays.sort(merged);
+        return dedupe(merged);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                out[size++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    private static int[] dedupe(int[] sorted) {
+        if (sorted.length == 0) {
+            return sorted;
+        }
+        int size = 1;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[size - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    // Separar en palabras, sin tildes y en minúsculas
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        for (String token : normalized.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Lista creciente de números de interacción para un token
+    private static class Postings {
+        int[] numbers = new int[4];
+        int size;
+
+        void add(int number) {
+            // Un mismo texto puede repetir la palabra
+            if (size > 0 && numbers[size - 1] == number) {
+                return;
+            }
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+
+        void removeThrough(int lastNumber) {
+            int index = Arrays.binarySearch(numbers, 0, size, lastNumber);
+            int keepFrom = index >= 0 ? index + 1 : -index - 1;
+            if (keepFrom > 0) {
+                System.arraycopy(numbers, keepFrom, numbers, 0, size - keepFrom);
+                size -= keepFrom;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(numbers, size);
+        }
+    }
+}
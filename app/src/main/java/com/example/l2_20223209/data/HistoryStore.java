@@ -0,0 +1,50 @@
+package com.example.l2_20223209.data;
+
+import java.util.List;
+
+// Almacenamiento del historial usado por HistoryManager. Las interacciones se agregan
+// con números crecientes; las implementaciones no necesitan ser seguras entre hilos
+// porque HistoryManager las usa desde un único hilo de disco.
+public interface HistoryStore {
+
+    void insert(HistoryManager.Interaction interaction);
+
+    // Insertar muchas interacciones de una vez (migración)
+    void insertAll(List<HistoryManager.Interaction> interactions);
+
+    void clear();
+
+    // Interacción con ese número, o null si no existe
+    HistoryManager.Interaction load(int interactionNumber);
+
+    // Interacciones con número en [fromNumber, toNumber], en orden
+    List<HistoryManager.Interaction> loadRange(int fromNumber, int toNumber);
+
+    // Interacciones con esos números (en orden creciente); los que no existen se omiten
+    List<HistoryManager.Interaction> loadNumbers(int[] interactionNumbers);
+
+    List<HistoryManager.Interaction> loadAll();
+
+    // {cantidad de interacciones, imágenes vistas, primera interacción, última interacción}.
+    // La última es la mayor asignada aunque ya se haya compactado, para que la numeración
+    // continúe sin repetirse
+    long[] loadAggregates();
+
+    // Resúmenes por bucket (HistoryRollup.HOURLY o DAILY) en [fromBucket, toBucket]; los
+    // resúmenes se mantienen al insertar, así que el costo depende de los buckets del rango
+    List<HistoryRollup> loadRollups(int granularity, long fromBucket, long toBucket);
+
+    // Un solo resumen para todo el rango (los textos distintos no se repiten entre buckets)
+    HistoryRollup loadRollupTotal(int granularity, long fromBucket, long toBucket);
+
+    // Bytes que ocupan aproximadamente las interacciones guardadas. Solo debe contar lo que
+    // deleteThrough libera; si no, la retención por bytes compactaría todo sin llegar al límite
+    long estimateSizeBytes();
+
+    // Número de la interacción más reciente anterior a 'timestamp', o 0 si no hay
+    int findLastNumberBefore(long timestamp);
+
+    // Compactar: borrar las interacciones con número <= lastNumber conservando los
+    // resúmenes. Devuelve {interacciones borradas, imágenes borradas}
+    long[] deleteThrough(int lastNumber);
+}
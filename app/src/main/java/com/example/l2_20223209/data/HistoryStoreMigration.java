@@ -0,0 +1,48 @@
+package com.example.l2_20223209.data;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+// Copia el historial al cambiar de almacenamiento (SQLite o archivo binario): las
+// interacciones vivas por bloques, los resúmenes de lo ya compactado y el último número
+// asignado, así que la lista, las estadísticas y la numeración quedan igual. El destino se
+// vacía antes de copiar; el origen no se toca (lo borra el llamador si la copia resultó).
+final class HistoryStoreMigration {
+    private static final int COPY_CHUNK = 1000;
+
+    private HistoryStoreMigration() {
+    }
+
+    // Devuelven true si el destino quedó con los mismos agregados que el origen
+    static boolean copy(HistoryDatabase from, MappedHistoryStore to) throws IOException {
+        long[] aggregates = from.loadAggregates();
+        to.clear();
+        RollupTable live = copyRows(from, to, aggregates);
+        // SQLite guarda un solo resumen para vivas y compactadas: lo compactado es la diferencia
+        to.importCompacted(from.loadRollupTable().minusCounts(live), (int) aggregates[3]);
+        return Arrays.equals(aggregates, to.loadAggregates());
+    }
+
+    static boolean copy(MappedHistoryStore from, HistoryDatabase to) {
+        long[] aggregates = from.loadAggregates();
+        to.clear();
+        copyRows(from, to, aggregates);
+        to.importCompacted(from.copyCompactedRollups(), (int) aggregates[3]);
+        return Arrays.equals(aggregates, to.loadAggregates());
+    }
+
+    // Los resúmenes de las interacciones copiadas, que el destino ya cuenta al insertarlas
+    private static RollupTable copyRows(HistoryStore from, HistoryStore to, long[] aggregates) {
+        RollupTable live = new RollupTable();
+        for (long first = aggregates[2]; first > 0 && first <= aggregates[3]; first += COPY_CHUNK) {
+            List<HistoryManager.Interaction> chunk = from.loadRange((int) first,
+                    (int) Math.min(aggregates[3], first + COPY_CHUNK - 1));
+            for (HistoryManager.Interaction interaction : chunk) {
+                live.add(interaction);
+            }
+            to.insertAll(chunk);
+        }
+        return live;
+    }
+}
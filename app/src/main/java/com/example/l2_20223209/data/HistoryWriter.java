@@ -0,0 +1,315 @@
+package com.example.l2_20223209.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Escritor único del historial: todas las modificaciones pasan por una cola que atiende
+// un solo hilo. Los números de interacción se asignan al encolar (bajo un lock), así que
+// son estrictamente crecientes y nunca se repiten. Las escrituras que llegan juntas se
+// agrupan en un solo commit (group commit) y cada llamador recibe un future que se
+// completa cuando su escritura ya está guardada. El almacenamiento se abre en el mismo hilo
+// (abrir SQLite o migrar formatos antiguos puede tardar); las operaciones encoladas antes
+// esperan a que termine.
+public class HistoryWriter {
+
+    // Máximo de operaciones por commit y tiempo que se espera a que lleguen más
+    private static final int MAX_BATCH = 256;
+    private static final long GROUP_COMMIT_WINDOW_MS = 2;
+
+    private final Opener opener;
+    // Solo lo usa el hilo escritor, después de abrirlo
+    private HistoryStore store;
+    private final CompletableFuture<Void> opened = new CompletableFuture<>();
+    private final Listener listener;
+    private final BlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+
+    // Estado aceptado (incluye operaciones encoladas que aún no llegan al disco)
+    private int totalInteractions;
+    private long totalImagesViewed;
+    private int firstInteractionNumber;
+    private int lastInteractionNumber;
+    // Cambia con cada clear, para descartar compactaciones encoladas antes
+    private int clearGeneration;
+    private boolean closed;
+
+    // Avisos en el hilo escritor después de cada commit, en el mismo orden que las
+    // operaciones: las interacciones llegan siempre en orden creciente de número
+    public interface Listener {
+        void onAdded(List<HistoryManager.Interaction> interactions);
+
+        void onCleared();
+    }
+
+    // Abre (y si hace falta migra) el almacenamiento; se llama una vez en el hilo escritor
+    public interface Opener {
+        HistoryStore open();
+    }
+
+    public HistoryWriter(HistoryStore store) {
+        this(store, null);
+    }
+
+    public HistoryWriter(HistoryStore store, Listener listener) {
+        this(() -> store, listener);
+    }
+
+    public HistoryWriter(Opener opener, Listener listener) {
+        this.opener = opener;
+        this.listener = listener;
+        this.writerThread = new Thread(this::runLoop, "history-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // Se completa cuando el almacenamiento ya está abierto y los agregados cargados
+    public CompletableFuture<Void> whenOpened() {
+        return opened;
+    }
+
+    // Los números y agregados parten de lo guardado: las modificaciones esperan a la apertura
+    private void awaitOpened() {
+        try {
+            opened.join();
+        } catch (RuntimeException e) {
+            // Sin almacenamiento la operación falla al procesarse
+        }
+    }
+
+    // Agregar una interacción; el número se asigna aquí, en orden de llegada
+    public CompletableFuture<HistoryManager.Interaction> add(String text, int quantity) {
+        awaitOpened();
+        return enqueueAdd(text, quantity);
+    }
+
+    private synchronized CompletableFuture<HistoryManager.Interaction> enqueueAdd(String text, int quantity) {
+        int interactionNumber = lastInteractionNumber + 1;
+        HistoryManager.Interaction interaction =
+                new HistoryManager.Interaction(text, quantity, interactionNumber);
+        if (totalInteractions == 0) {
+            firstInteractionNumber = interactionNumber;
+        }
+        totalInteractions++;
+        totalImagesViewed += quantity;
+        lastInteractionNumber = interactionNumber;
+
+        Operation operation = new Operation(Operation.ADD, interaction, null);
+        enqueue(operation);
+        return operation.future.thenApply(ignored -> interaction);
+    }
+
+    public CompletableFuture<Void> clear() {
+        awaitOpened();
+        return enqueueClear();
+    }
+
+    private synchronized CompletableFuture<Void> enqueueClear() {
+        clearGeneration++;
+        totalInteractions = 0;
+        totalImagesViewed = 0;
+        firstInteractionNumber = 0;
+        lastInteractionNumber = 0;
+
+        Operation operation = new Operation(Operation.CLEAR, null, null);
+        enqueue(operation);
+        return operation.future.thenApply(ignored -> null);
+    }
+
+    // Lectura ordenada después de todas las escrituras encoladas antes
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> read(Function<HistoryStore, T> query) {
+        Operation operation = new Operation(Operation.READ, null, query::apply);
+        synchronized (this) {
+            enqueue(operation);
+        }
+        return operation.future.thenApply(result -> (T) result);
+    }
+
+    // Compactar lo que supere la retención, en el hilo escritor (en orden con las demás
+    // operaciones). Devuelve el número de la última interacción compactada, o 0 si ninguna
+    public CompletableFuture<Integer> compact(HistoryRetention retention, long now) {
+        int generation;
+        synchronized (this) {
+            generation = clearGeneration;
+        }
+        return read(historyStore -> {
+            int lastExpired = retention.getMaxAgeMs() > 0
+                    ? historyStore.findLastNumberBefore(now - retention.getMaxAgeMs()) : 0;
+            int cutoff = retention.cutoff(historyStore.loadAggregates(),
+                    historyStore.estimateSizeBytes(), lastExpired);
+            if (cutoff <= 0) {
+                return 0;
+            }
+            onCompacted(generation, cutoff, historyStore.deleteThrough(cutoff));
+            return cutoff;
+        });
+    }
+
+    // Las interacciones encoladas tienen números mayores que el corte, no se ven afectadas
+    private synchronized void onCompacted(int generation, int cutoff, long[] removed) {
+        if (generation != clearGeneration) {
+            return;
+        }
+        totalInteractions -= (int) removed[0];
+        totalImagesViewed -= removed[1];
+        firstInteractionNumber = totalInteractions == 0 ? 0 : Math.max(firstInteractionNumber, cutoff + 1);
+    }
+
+    public synchronized int getTotalInteractions() {
+        return totalInteractions;
+    }
+
+    public synchronized long getTotalImagesViewed() {
+        return totalImagesViewed;
+    }
+
+    public synchronized int getFirstInteractionNumber() {
+        return firstInteractionNumber;
+    }
+
+    public synchronized int getLastInteractionNumber() {
+        return lastInteractionNumber;
+    }
+
+    // Terminar después de procesar lo que ya está en la cola
+    public void close() throws InterruptedException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(new Operation(Operation.STOP, null, null));
+        }
+        writerThread.join();
+    }
+
+    private void enqueue(Operation operation) {
+        if (closed) {
+            operation.future.completeExceptionally(new IllegalStateException("HistoryWriter cerrado"));
+            return;
+        }
+        queue.add(operation);
+    }
+
+    private void open() {
+        try {
+            HistoryStore openedStore = opener.open();
+            long[] aggregates = openedStore.loadAggregates();
+            synchronized (this) {
+                store = openedStore;
+                totalInteractions = (int) aggregates[0];
+                totalImagesViewed = aggregates[1];
+                firstInteractionNumber = (int) aggregates[2];
+                lastInteractionNumber = (int) aggregates[3];
+            }
+            opened.complete(null);
+        } catch (RuntimeException e) {
+            opened.completeExceptionally(e);
+        }
+    }
+
+    private void runLoop() {
+        open();
+        List<Operation> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - batch.size());
+                // Dar una pequeña ventana para agrupar escrituras que llegan casi juntas
+                if (batch.size() < MAX_BATCH) {
+                    Operation next = queue.poll(GROUP_COMMIT_WINDOW_MS, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                        queue.drainTo(batch, MAX_BATCH - batch.size());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            boolean stop = process(batch);
+            batch.clear();
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    // Aplicar un lote en orden: las inserciones consecutivas se guardan en un solo commit
+    private boolean process(List<Operation> batch) {
+        List<Operation> pendingAdds = new ArrayList<>();
+        for (Operation operation : batch) {
+            if (operation.type == Operation.ADD) {
+                pendingAdds.add(operation);
+                continue;
+            }
+            commitAdds(pendingAdds);
+            if (operation.type == Operation.STOP) {
+                return true;
+            }
+            try {
+                if (operation.type == Operation.CLEAR) {
+                    store.clear();
+                    if (listener != null) {
+                        listener.onCleared();
+                    }
+                    operation.future.complete(null);
+                } else {
+                    operation.future.complete(operation.query.apply(store));
+                }
+            } catch (RuntimeException e) {
+                operation.future.completeExceptionally(e);
+            }
+        }
+        commitAdds(pendingAdds);
+        return false;
+    }
+
+    private void commitAdds(List<Operation> adds) {
+        if (adds.isEmpty()) {
+            return;
+        }
+        List<HistoryManager.Interaction> interactions = new ArrayList<>(adds.size());
+        for (Operation add : adds) {
+            interactions.add(add.interaction);
+        }
+        try {
+            store.insertAll(interactions);
+            if (listener != null) {
+                listener.onAdded(interactions);
+            }
+            for (Operation add : adds) {
+                add.future.complete(null);
+            }
+        } catch (RuntimeException e) {
+            for (Operation add : adds) {
+                add.future.completeExceptionally(e);
+            }
+        }
+        adds.clear();
+    }
+
+    private static class Operation {
+        static final int ADD = 0;
+        static final int CLEAR = 1;
+        static final int READ = 2;
+        static final int STOP = 3;
+
+        final int type;
+        final HistoryManager.Interaction interaction;
+        final Function<HistoryStore, Object> query;
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        Operation(int type, HistoryManager.Interaction interaction, Function<HistoryStore, Object> query) {
+            this.type = type;
+            this.interaction = interaction;
+            this.query = query;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.l2_20223209.data;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lectura/escritura en streaming de HistoryManager.Interaction, sin reflexión.
+// Permite contar, sumar o leer solo un rango de un arreglo JSON sin construir la lista completa.
+public final class InteractionJson {
+
+    private static final String FIELD_TEXT = "text";
+    private static final String FIELD_QUANTITY = "quantity";
+    private static final String FIELD_TIMESTAMP = "timestamp";
+    private static final String FIELD_NUMBER = "interactionNumber";
+
+    public static final TypeAdapter<HistoryManager.Interaction> ADAPTER =
+            new TypeAdapter<HistoryManager.Interaction>() {
+                @Override
+                public void write(JsonWriter out, HistoryManager.Interaction interaction) throws IOException {
+                    if (interaction == null) {
+                        out.nullValue();
+                        return;
+                    }
+                    out.beginObject();
+                    out.name(FIELD_TEXT).value(interaction.getText());
+                    out.name(FIELD_QUANTITY).value(interaction.getQuantity());
+                    out.name(FIELD_TIMESTAMP).value(interaction.getTimestamp());
+                    out.name(FIELD_NUMBER).value(interaction.getInteractionNumber());
+                    out.endObject();
+                }
+
+                @Override
+                public HistoryManager.Interaction read(JsonReader in) throws IOException {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        return null;
+                    }
+                    String text = "";
+                    int quantity = 0;
+                    long timestamp = 0;
+                    int interactionNumber = 0;
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String name = in.nextName();
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            continue;
+                        }
+                        switch (name) {
+                            case FIELD_TEXT:
+                                text = in.nextString();
+                                break;
+                            case FIELD_QUANTITY:
+                                quantity = in.nextInt();
+                                break;
+                            case FIELD_TIMESTAMP:
+                                timestamp = in.nextLong();
+                                break;
+                            case FIELD_NUMBER:
+                                interactionNumber = in.nextInt();
+                                break;
+                            default:
+                                in.skipValue();
+                                break;
+                        }
+                    }
+                    in.endObject();
+                    return new HistoryManager.Interaction(text, quantity, timestamp, interactionNumber);
+                }
+            };
+
+    private InteractionJson() {
+    }
+
+    // Leer un arreglo completo
+    public static List<HistoryManager.Interaction> readAll(Reader json) throws IOException {
+        return readRange(json, 0, Integer.MAX_VALUE);
+    }
+
+    // Leer solo los elementos con índice en [from, to); el resto se salta sin materializarlo
+    public static List<HistoryManager.Interaction> readRange(Reader json, int from, int to) throws IOException {
+        List<HistoryManager.Interaction> interactions = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(json)) {
+            if (!beginArray(reader)) {
+                return interactions;
+            }
+            int index = 0;
+            while (reader.hasNext() && index < to) {
+                if (index >= from) {
+                    HistoryManager.Interaction interaction = ADAPTER.read(reader);
+                    if (interaction != null) {
+                        interactions.add(interaction);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+                index++;
+            }
+        }
+        return interactions;
+    }
+
+    // Contar los elementos sin materializarlos (p. ej. para luego leer los últimos n con readRange)
+    public static int count(Reader json) throws IOException {
+        int count = 0;
+        try (JsonReader reader = new JsonReader(json)) {
+            if (!beginArray(reader)) {
+                return 0;
+            }
+            while (reader.hasNext()) {
+                reader.skipValue();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Sumar las cantidades de imágenes leyendo solo ese campo de cada objeto
+    public static long sumQuantities(Reader json) throws IOException {
+        long total = 0;
+        try (JsonReader reader = new JsonReader(json)) {
+            if (!beginArray(reader)) {
+                return 0;
+            }
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (FIELD_QUANTITY.equals(reader.nextName()) && reader.peek() == JsonToken.NUMBER) {
+                        total += reader.nextInt();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+        }
+        return total;
+    }
+
+    private static boolean beginArray(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return false;
+        }
+        reader.beginArray();
+        return true;
+    }
+}
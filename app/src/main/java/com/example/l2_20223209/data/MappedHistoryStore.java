@@ -0,0 +1,473 @@
+package com.example.l2_20223209.data;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Historial en un archivo binario mapeado en memoria (FileChannel.map).
+// Cada interacción ocupa un registro de ancho fijo, así que la interacción #k se lee
+// directamente en la posición (k - primera) sin parsear ni copiar el resto del archivo.
+// Los textos se guardan una sola vez en una tabla de strings aparte y el registro
+// solo guarda su índice. Los resúmenes de lo ya compactado se guardan en un tercer archivo.
+public class MappedHistoryStore implements HistoryStore {
+    private static final String TAG = "MappedHistoryStore";
+
+    private static final int MAGIC = 0x54434831; // "TCH1"
+    private static final int VERSION = 1;
+
+    // Cabecera del archivo de registros
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_SLOT_COUNT = 8;
+    private static final int HEADER_LIVE_COUNT = 12;
+    private static final int HEADER_FIRST_NUMBER = 16;
+    // Mayor número escrito; se conserva aunque se compacten todos los registros
+    private static final int HEADER_LAST_NUMBER = 20;
+    private static final int HEADER_TOTAL_IMAGES = 24;
+    private static final int HEADER_SIZE = 32;
+
+    // Registro de ancho fijo; interactionNumber == 0 marca un hueco
+    private static final int RECORD_NUMBER = 0;
+    private static final int RECORD_QUANTITY = 4;
+    private static final int RECORD_TIMESTAMP = 8;
+    private static final int RECORD_TEXT_ID = 16;
+    private static final int RECORD_SIZE = 24;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    private final FileChannel recordsChannel;
+    private final FileChannel textsChannel;
+    private final File rollupsFile;
+    private MappedByteBuffer records;
+    private int capacity;
+
+    // Tabla de strings deduplicada: índice -> texto y texto -> índice
+    private final List<String> texts = new ArrayList<>();
+    private final Map<String, Integer> textIds = new HashMap<>();
+    // Resúmenes por hora y día: los de interacciones compactadas (guardados en disco) más
+    // los de los registros vivos, que se reconstruyen al abrir
+    private final RollupTable compactedRollups = new RollupTable();
+    private final RollupTable rollups = new RollupTable();
+
+    public MappedHistoryStore(File recordsFile, File textsFile, File rollupsFile) throws IOException {
+        this.recordsChannel = new RandomAccessFile(recordsFile, "rw").getChannel();
+        this.textsChannel = new RandomAccessFile(textsFile, "rw").getChannel();
+        this.rollupsFile = rollupsFile;
+
+        boolean valid = recordsChannel.size() >= HEADER_SIZE;
+        map(Math.max(INITIAL_CAPACITY, (int) ((recordsChannel.size() - HEADER_SIZE) / RECORD_SIZE)));
+        if (valid) {
+            valid = records.getInt(HEADER_MAGIC) == MAGIC && records.getInt(HEADER_VERSION) == VERSION;
+        }
+        if (valid) {
+            loadTexts();
+            rebuildRollups();
+        } else {
+            resetHeader();
+            textsChannel.truncate(0);
+            rollupsFile.delete();
+        }
+    }
+
+    @Override
+    public synchronized void insert(HistoryManager.Interaction interaction) {
+        try {
+            write(interaction);
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudo guardar la interacción", e);
+        }
+    }
+
+    @Override
+    public synchronized void insertAll(List<HistoryManager.Interaction> interactions) {
+        try {
+            for (HistoryManager.Interaction interaction : interactions) {
+                write(interaction);
+            }
+            records.force();
+            textsChannel.force(false);
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudo guardar el historial", e);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        resetHeader();
+        texts.clear();
+        textIds.clear();
+        rollups.clear();
+        compactedRollups.clear();
+        rollupsFile.delete();
+        try {
+            textsChannel.truncate(0);
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudo limpiar la tabla de textos", e);
+        }
+    }
+
+    // Lectura directa por posición: no se toca ningún otro registro
+    @Override
+    public synchronized HistoryManager.Interaction load(int interactionNumber) {
+        long index = (long) interactionNumber - records.getInt(HEADER_FIRST_NUMBER);
+        if (index < 0 || index >= records.getInt(HEADER_SLOT_COUNT)) {
+            return null;
+        }
+        return readRecord((int) index);
+    }
+
+    @Override
+    public synchronized List<HistoryManager.Interaction> loadRange(int fromNumber, int toNumber) {
+        List<HistoryManager.Interaction> range = new ArrayList<>();
+        int first = records.getInt(HEADER_FIRST_NUMBER);
+        int slotCount = records.getInt(HEADER_SLOT_COUNT);
+        int from = (int) Math.max(0L, (long) fromNumber - first);
+        int to = (int) Math.min((long) slotCount - 1, (long) toNumber - first);
+        for (int index = from; index <= to; index++) {
+            HistoryManager.Interaction interaction = readRecord(index);
+            if (interaction != null) {
+                range.add(interaction);
+            }
+        }
+        return range;
+    }
+
+    @Override
+    public synchronized List<HistoryManager.Interaction> loadNumbers(int[] interactionNumbers) {
+        List<HistoryManager.Interaction> interactions = new ArrayList<>(interactionNumbers.length);
+        for (int number : interactionNumbers) {
+            HistoryManager.Interaction interaction = load(number);
+            if (interaction != null) {
+                interactions.add(interaction);
+            }
+        }
+        return interactions;
+    }
+
+    @Override
+    public synchronized List<HistoryManager.Interaction> loadAll() {
+        return loadRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    // Los totales se mantienen en la cabecera; solo se buscan los extremos vivos
+    @Override
+    public synchronized long[] loadAggregates() {
+        int slotCount = records.getInt(HEADER_SLOT_COUNT);
+        int firstLive = -1;
+        int lastLive = -1;
+        for (int index = 0; index < slotCount && firstLive < 0; index++) {
+            if (isLive(index)) {
+                firstLive = index;
+            }
+        }
+        for (int index = slotCount - 1; index >= 0 && lastLive < 0; index--) {
+            if (isLive(index)) {
+                lastLive = index;
+            }
+        }
+        int first = records.getInt(HEADER_FIRST_NUMBER);
+        return new long[]{
+                records.getInt(HEADER_LIVE_COUNT),
+                records.getLong(HEADER_TOTAL_IMAGES),
+                firstLive < 0 ? 0 : first + firstLive,
+                Math.max(lastLive < 0 ? 0 : first + lastLive, records.getInt(HEADER_LAST_NUMBER))
+        };
+    }
+
+    // Solo los registros: la tabla de textos no se compacta (un texto puede seguir en uso por
+    // registros posteriores), así que contarla haría que cada compactación lo borrara todo
+    // cuando los textos distintos solos superan el límite
+    @Override
+    public synchronized long estimateSizeBytes() {
+        return (long) records.getInt(HEADER_SLOT_COUNT) * RECORD_SIZE;
+    }
+
+    // Los registros están en orden de número y de fecha: basta avanzar desde el primero
+    @Override
+    public synchronized int findLastNumberBefore(long timestamp) {
+        int slotCount = records.getInt(HEADER_SLOT_COUNT);
+        int lastNumber = 0;
+        for (int index = 0; index < slotCount; index++) {
+            if (!isLive(index)) {
+                continue;
+            }
+            if (records.getLong(recordOffset(index) + RECORD_TIMESTAMP) >= timestamp) {
+                break;
+            }
+            lastNumber = records.getInt(recordOffset(index) + RECORD_NUMBER);
+        }
+        return lastNumber;
+    }
+
+    // Se guardan los resúmenes de lo compactado y los registros restantes se mueven al
+    // principio del archivo. La tabla de textos no se reescribe.
+    @Override
+    public synchronized long[] deleteThrough(int lastNumber) {
+        int slotCount = records.getInt(HEADER_SLOT_COUNT);
+        int first = records.getInt(HEADER_FIRST_NUMBER);
+        int removedSlots = (int) Math.min(slotCount, Math.max(0L, (long) lastNumber - first + 1));
+        if (removedSlots == 0) {
+            return new long[]{0, 0};
+        }
+        long removedCount = 0;
+        long removedImages = 0;
+        for (int index = 0; index < removedSlots; index++) {
+            HistoryManager.Interaction interaction = readRecord(index);
+            if (interaction != null) {
+                compactedRollups.add(interaction);
+                removedCount++;
+                removedImages += interaction.getQuantity();
+            }
+        }
+        try {
+            saveCompactedRollups();
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudieron guardar los resúmenes, no se compacta", e);
+            rebuildRollups();
+            return new long[]{0, 0};
+        }
+
+        // Mover los registros vivos al principio (el destino siempre está antes del origen)
+        byte[] chunk = new byte[COPY_CHUNK];
+        int from = recordOffset(removedSlots);
+        int end = recordOffset(slotCount);
+        int to = HEADER_SIZE;
+        while (from < end) {
+            int length = Math.min(chunk.length, end - from);
+            records.position(from);
+            records.get(chunk, 0, length);
+            records.position(to);
+            records.put(chunk, 0, length);
+            from += length;
+            to += length;
+        }
+        records.putInt(HEADER_FIRST_NUMBER, slotCount == removedSlots ? 0 : first + removedSlots);
+        records.putInt(HEADER_SLOT_COUNT, slotCount - removedSlots);
+        records.putInt(HEADER_LIVE_COUNT, (int) (records.getInt(HEADER_LIVE_COUNT) - removedCount));
+        records.putLong(HEADER_TOTAL_IMAGES, records.getLong(HEADER_TOTAL_IMAGES) - removedImages);
+        records.force();
+        return new long[]{removedCount, removedImages};
+    }
+
+    // Cerrar los archivos (p. ej. antes de borrarlos al migrar a otro almacenamiento)
+    synchronized void close() throws IOException {
+        records.force();
+        recordsChannel.close();
+        textsChannel.close();
+    }
+
+    // Resúmenes de lo ya compactado (sin los registros vivos), para migrar a otro almacenamiento
+    synchronized RollupTable copyCompactedRollups() {
+        RollupTable copy = new RollupTable();
+        copy.addAll(compactedRollups);
+        return copy;
+    }
+
+    // Traer de otro almacenamiento los resúmenes de lo compactado allí y su último número,
+    // para que las estadísticas y la numeración sigan igual
+    synchronized void importCompacted(RollupTable compacted, int lastNumber) throws IOException {
+        compactedRollups.addAll(compacted);
+        saveCompactedRollups();
+        rollups.addAll(compacted);
+        records.putInt(HEADER_LAST_NUMBER, Math.max(lastNumber, records.getInt(HEADER_LAST_NUMBER)));
+        records.force();
+    }
+
+    @Override
+    public synchronized List<HistoryRollup> loadRollups(int granularity, long fromBucket, long toBucket) {
+        return rollups.load(granularity, fromBucket, toBucket);
+    }
+
+    @Override
+    public synchronized HistoryRollup loadRollupTotal(int granularity, long fromBucket, long toBucket) {
+        return rollups.loadTotal(granularity, fromBucket, toBucket);
+    }
+
+    private void write(HistoryManager.Interaction interaction) throws IOException {
+        int number = interaction.getInteractionNumber();
+        int slotCount = records.getInt(HEADER_SLOT_COUNT);
+        if (slotCount == 0) {
+            records.putInt(HEADER_FIRST_NUMBER, number);
+        }
+        int index = number - records.getInt(HEADER_FIRST_NUMBER);
+        if (index < 0) {
+            Log.w(TAG, "Interacción anterior a la primera guardada, se ignora: " + number);
+            return;
+        }
+        ensureCapacity(index + 1);
+
+        int liveCount = records.getInt(HEADER_LIVE_COUNT);
+        long totalImages = records.getLong(HEADER_TOTAL_IMAGES);
+        if (index < slotCount && isLive(index)) {
+            // Reemplazo de un registro existente (ya contado en los resúmenes)
+            totalImages -= records.getInt(recordOffset(index) + RECORD_QUANTITY);
+        } else {
+            liveCount++;
+            rollups.add(interaction);
+        }
+        // Marcar como huecos los registros intermedios que no llegaron
+        for (int gap = slotCount; gap < index; gap++) {
+            records.putInt(recordOffset(gap) + RECORD_NUMBER, 0);
+        }
+
+        int offset = recordOffset(index);
+        records.putInt(offset + RECORD_QUANTITY, interaction.getQuantity());
+        records.putLong(offset + RECORD_TIMESTAMP, interaction.getTimestamp());
+        records.putInt(offset + RECORD_TEXT_ID, textId(interaction.getText()));
+        records.putInt(offset + RECORD_NUMBER, number);
+
+        // La cabecera se actualiza después del registro
+        records.putLong(HEADER_TOTAL_IMAGES, totalImages + interaction.getQuantity());
+        records.putInt(HEADER_LIVE_COUNT, liveCount);
+        records.putInt(HEADER_SLOT_COUNT, Math.max(slotCount, index + 1));
+        records.putInt(HEADER_LAST_NUMBER, Math.max(number, records.getInt(HEADER_LAST_NUMBER)));
+    }
+
+    private HistoryManager.Interaction readRecord(int index) {
+        int offset = recordOffset(index);
+        int number = records.getInt(offset + RECORD_NUMBER);
+        if (number == 0) {
+            return null;
+        }
+        int textId = records.getInt(offset + RECORD_TEXT_ID);
+        return new HistoryManager.Interaction(
+                textId >= 0 && textId < texts.size() ? texts.get(textId) : "",
+                records.getInt(offset + RECORD_QUANTITY),
+                records.getLong(offset + RECORD_TIMESTAMP),
+                number);
+    }
+
+    private void rebuildRollups() {
+        loadCompactedRollups();
+        int slotCount = records.getInt(HEADER_SLOT_COUNT);
+        for (int index = 0; index < slotCount; index++) {
+            HistoryManager.Interaction interaction = readRecord(index);
+            if (interaction != null) {
+                rollups.add(interaction);
+            }
+        }
+    }
+
+    private void loadCompactedRollups() {
+        compactedRollups.clear();
+        rollups.clear();
+        if (!rollupsFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(rollupsFile)))) {
+            compactedRollups.readFrom(in);
+        } catch (IOException e) {
+            Log.e(TAG, "No se pudieron leer los resúmenes compactados", e);
+            compactedRollups.clear();
+        }
+        rollups.addAll(compactedRollups);
+    }
+
+    // Escribir en un archivo temporal y renombrar, para no dejar el archivo a medias
+    private void saveCompactedRollups() throws IOException {
+        File temp = new File(rollupsFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            compactedRollups.writeTo(out);
+        }
+        if (!temp.renameTo(rollupsFile)) {
+            throw new IOException("No se pudo reemplazar " + rollupsFile);
+        }
+    }
+
+    private boolean isLive(int index) {
+        return records.getInt(recordOffset(index) + RECORD_NUMBER) != 0;
+    }
+
+    private static int recordOffset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private void ensureCapacity(int slots) throws IOException {
+        if (slots <= capacity) {
+            return;
+        }
+        records.force();
+        map(Math.max(slots, capacity * 2));
+    }
+
+    // Mapear el archivo con espacio para 'slots' registros (el archivo crece si hace falta)
+    private void map(int slots) throws IOException {
+        capacity = slots;
+        records = recordsChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) slots * RECORD_SIZE);
+    }
+
+    private void resetHeader() {
+        records.putInt(HEADER_MAGIC, MAGIC);
+        records.putInt(HEADER_VERSION, VERSION);
+        records.putInt(HEADER_SLOT_COUNT, 0);
+        records.putInt(HEADER_LIVE_COUNT, 0);
+        records.putInt(HEADER_FIRST_NUMBER, 0);
+        records.putInt(HEADER_LAST_NUMBER, 0);
+        records.putLong(HEADER_TOTAL_IMAGES, 0);
+    }
+
+    private int textId(String text) throws IOException {
+        Integer id = textIds.get(text);
+        if (id != null) {
+            return id;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(4 + bytes.length);
+        entry.putInt(bytes.length).put(bytes).flip();
+        long position = textsChannel.size();
+        while (entry.hasRemaining()) {
+            position += textsChannel.write(entry, position);
+        }
+        id = texts.size();
+        texts.add(text);
+        textIds.put(text, id);
+        return id;
+    }
+
+    // La tabla de textos es pequeña (textos distintos), se carga completa al abrir.
+    // Una entrada cortada al final (escritura interrumpida) se descarta.
+    private void loadTexts() throws IOException {
+        long size = textsChannel.size();
+        ByteBuffer table = ByteBuffer.allocate((int) size);
+        while (table.hasRemaining() && textsChannel.read(table, table.position()) >= 0) {
+            // leer hasta llenar el buffer
+        }
+        table.flip();
+        int validEnd = 0;
+        while (table.remaining() >= 4) {
+            int length = table.getInt();
+            if (length < 0 || length > table.remaining()) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            table.get(bytes);
+            String text = new String(bytes, StandardCharsets.UTF_8);
+            textIds.put(text, texts.size());
+            texts.add(text);
+            validEnd = table.position();
+        }
+        if (validEnd < size) {
+            textsChannel.truncate(validEnd);
+        }
+    }
+}
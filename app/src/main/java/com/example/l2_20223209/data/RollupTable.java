@@ -0,0 +1,173 @@
+package com.example.l2_20223209.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Resúmenes por hora y por día mantenidos en memoria (para el backend binario).
+// Cada interacción actualiza un bucket por granularidad; las consultas por rango solo
+// recorren los buckets del rango, nunca las interacciones.
+class RollupTable {
+
+    private final List<TreeMap<Long, Bucket>> buckets = new ArrayList<>();
+
+    RollupTable() {
+        buckets.add(new TreeMap<>()); // HOURLY
+        buckets.add(new TreeMap<>()); // DAILY
+    }
+
+    void add(HistoryManager.Interaction interaction) {
+        long textHash = HistoryRollup.textHash(interaction.getText());
+        for (int granularity = 0; granularity < buckets.size(); granularity++) {
+            long key = HistoryRollup.bucketOf(granularity, interaction.getTimestamp());
+            Bucket bucket = buckets.get(granularity).get(key);
+            if (bucket == null) {
+                bucket = new Bucket();
+                buckets.get(granularity).put(key, bucket);
+            }
+            bucket.interactions++;
+            bucket.imagesViewed += interaction.getQuantity();
+            bucket.textHashes.add(textHash);
+        }
+    }
+
+    // Sumar los buckets de otra tabla (los textos distintos se unen)
+    void addAll(RollupTable other) {
+        for (int granularity = 0; granularity < buckets.size(); granularity++) {
+            for (Map.Entry<Long, Bucket> entry : other.buckets.get(granularity).entrySet()) {
+                Bucket bucket = buckets.get(granularity).get(entry.getKey());
+                if (bucket == null) {
+                    bucket = new Bucket();
+                    buckets.get(granularity).put(entry.getKey(), bucket);
+                }
+                bucket.interactions += entry.getValue().interactions;
+                bucket.imagesViewed += entry.getValue().imagesViewed;
+                bucket.textHashes.addAll(entry.getValue().textHashes);
+            }
+        }
+    }
+
+    // Sumar un bucket ya resumido (p. ej. leído de otro almacenamiento)
+    void addBucket(int granularity, long key, int interactions, long imagesViewed, Collection<Long> textHashes) {
+        Bucket bucket = buckets.get(granularity).get(key);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets.get(granularity).put(key, bucket);
+        }
+        bucket.interactions += interactions;
+        bucket.imagesViewed += imagesViewed;
+        bucket.textHashes.addAll(textHashes);
+    }
+
+    // Esta tabla sin las interacciones e imágenes de 'part'. Las huellas de textos se
+    // conservan todas: al unirla de nuevo con 'part' los textos distintos dan lo mismo
+    RollupTable minusCounts(RollupTable part) {
+        RollupTable result = new RollupTable();
+        for (int granularity = 0; granularity < buckets.size(); granularity++) {
+            for (Map.Entry<Long, Bucket> entry : buckets.get(granularity).entrySet()) {
+                Bucket removed = part.buckets.get(granularity).get(entry.getKey());
+                int interactions = entry.getValue().interactions - (removed != null ? removed.interactions : 0);
+                long imagesViewed = entry.getValue().imagesViewed - (removed != null ? removed.imagesViewed : 0);
+                result.addBucket(granularity, entry.getKey(), Math.max(0, interactions),
+                        Math.max(0, imagesViewed), entry.getValue().textHashes);
+            }
+        }
+        return result;
+    }
+
+    void forEachBucket(BucketVisitor visitor) {
+        for (int granularity = 0; granularity < buckets.size(); granularity++) {
+            for (Map.Entry<Long, Bucket> entry : buckets.get(granularity).entrySet()) {
+                Bucket bucket = entry.getValue();
+                visitor.visit(granularity, entry.getKey(), bucket.interactions, bucket.imagesViewed,
+                        bucket.textHashes);
+            }
+        }
+    }
+
+    interface BucketVisitor {
+        void visit(int granularity, long key, int interactions, long imagesViewed, Set<Long> textHashes);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        for (TreeMap<Long, Bucket> table : buckets) {
+            out.writeInt(table.size());
+            for (Map.Entry<Long, Bucket> entry : table.entrySet()) {
+                Bucket bucket = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeInt(bucket.interactions);
+                out.writeLong(bucket.imagesViewed);
+                out.writeInt(bucket.textHashes.size());
+                for (long textHash : bucket.textHashes) {
+                    out.writeLong(textHash);
+                }
+            }
+        }
+    }
+
+    void readFrom(DataInput in) throws IOException {
+        for (TreeMap<Long, Bucket> table : buckets) {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Bucket bucket = new Bucket();
+                long key = in.readLong();
+                bucket.interactions = in.readInt();
+                bucket.imagesViewed = in.readLong();
+                int textCount = in.readInt();
+                for (int t = 0; t < textCount; t++) {
+                    bucket.textHashes.add(in.readLong());
+                }
+                table.put(key, bucket);
+            }
+        }
+    }
+
+    void clear() {
+        for (TreeMap<Long, Bucket> table : buckets) {
+            table.clear();
+        }
+    }
+
+    List<HistoryRollup> load(int granularity, long fromBucket, long toBucket) {
+        List<HistoryRollup> rollups = new ArrayList<>();
+        for (Map.Entry<Long, Bucket> entry : range(granularity, fromBucket, toBucket).entrySet()) {
+            Bucket bucket = entry.getValue();
+            rollups.add(new HistoryRollup(granularity, entry.getKey(), entry.getKey(),
+                    bucket.interactions, bucket.imagesViewed, bucket.textHashes.size()));
+        }
+        return rollups;
+    }
+
+    HistoryRollup loadTotal(int granularity, long fromBucket, long toBucket) {
+        int interactions = 0;
+        long imagesViewed = 0;
+        Set<Long> textHashes = new HashSet<>();
+        for (Bucket bucket : range(granularity, fromBucket, toBucket).values()) {
+            interactions += bucket.interactions;
+            imagesViewed += bucket.imagesViewed;
+            textHashes.addAll(bucket.textHashes);
+        }
+        return new HistoryRollup(granularity, fromBucket, toBucket,
+                interactions, imagesViewed, textHashes.size());
+    }
+
+    private Map<Long, Bucket> range(int granularity, long fromBucket, long toBucket) {
+        if (fromBucket > toBucket) {
+            return new TreeMap<>();
+        }
+        return buckets.get(granularity).subMap(fromBucket, true, toBucket, true);
+    }
+
+    private static class Bucket {
+        int interactions;
+        long imagesViewed;
+        final Set<Long> textHashes = new HashSet<>();
+    }
+}
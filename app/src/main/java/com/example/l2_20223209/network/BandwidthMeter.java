@@ -0,0 +1,107 @@
+package com.example.l2_20223209.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+// Estimación del ancho de banda a partir de las descargas recientes: un interceptor de red
+// mide cuántos bytes del cuerpo llegan y en cuánto tiempo. Las respuestas pequeñas se
+// ignoran porque su tiempo lo domina la latencia, no el ancho de banda.
+public class BandwidthMeter implements Interceptor {
+
+    private static final long MIN_SAMPLE_BYTES = 16 * 1024;
+    // Peso de la última muestra en el promedio móvil
+    private static final double SMOOTHING = 0.3;
+
+    private static final BandwidthMeter INSTANCE = new BandwidthMeter();
+
+    private volatile double bytesPerSecond = -1;
+
+    public static BandwidthMeter getInstance() {
+        return INSTANCE;
+    }
+
+    // Bytes por segundo estimados, o -1 si aún no hay mediciones
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    synchronized void record(long bytes, long elapsedNanos) {
+        if (bytes < MIN_SAMPLE_BYTES || elapsedNanos <= 0) {
+            return;
+        }
+        double sample = bytes * 1_000_000_000.0 / elapsedNanos;
+        bytesPerSecond = bytesPerSecond < 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * bytesPerSecond;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        return response.newBuilder().body(new MeteredBody(body)).build();
+    }
+
+    // Cuerpo que cuenta los bytes leídos desde la primera lectura hasta el final
+    private class MeteredBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+        private long bytesRead;
+        private long startNanos;
+        private boolean recorded;
+
+        MeteredBody(ResponseBody delegate) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+                    if (startNanos == 0) {
+                        startNanos = System.nanoTime();
+                    }
+                    long read = super.read(sink, byteCount);
+                    if (read == -1) {
+                        finish();
+                    } else {
+                        bytesRead += read;
+                    }
+                    return read;
+                }
+            });
+        }
+
+        private void finish() {
+            if (!recorded) {
+                recorded = true;
+                record(bytesRead, System.nanoTime() - startNanos);
+            }
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @NonNull
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.l2_20223209.network;
+
+// Genera las URLs de la presentación. El tamaño pedido se elige al planear cada URL según el
+// tamaño medido del ImageView y el ancho de banda estimado, redondeado a unos pocos tamaños
+// fijos para que las claves de caché se puedan reutilizar.
+public class CatUrlPlanner {
+
+    private static final String CAT_URL = "https://cataas.com/cat";
+    private static final String CAT_SAYS_URL = "https://cataas.com/cat/says/";
+    // URLs de respaldo simples intercaladas al principio
+    private static final int BACKUP_URLS = 3;
+
+    static final int[] SIZE_BUCKETS = {200, 300, 400, 600, 800, 1200};
+    static final int DEFAULT_SIZE = 400;
+    // Bytes por pixel aproximados de un JPEG y tiempo de descarga aceptable por imagen
+    private static final double BYTES_PER_PIXEL = 0.2;
+    private static final double TRANSFER_BUDGET_SECONDS = 2.0;
+    // Separación entre las semillas de dos días: mayor que cualquier plan, para que no se solapen
+    private static final long DAILY_SEED_STRIDE = 10_000_000L;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final String baseUrl;
+    private final int quantity;
+    private final long seed;
+
+    public CatUrlPlanner(String text, int quantity, long seed) {
+        this.quantity = quantity;
+        this.seed = seed;
+
+        // Usar URL más simple y confiable de CATAAS
+        String url = CAT_URL;
+        // Si hay texto, agregarlo a la URL, pero simplificado
+        if (text != null && !text.trim().isEmpty()) {
+            String simpleText = text.trim().replaceAll("[^a-zA-Z0-9\\s]", "").replace(" ", "%20");
+            if (simpleText.length() > 0 && simpleText.length() <= 50) {
+                url = CAT_SAYS_URL + simpleText;
+            }
+        }
+        this.baseUrl = url;
+    }
+
+    // Semilla igual durante todo el día: las URLs se repiten entre presentaciones y Glide las
+    // encuentra en su caché. Sirve cuando el texto no va en la URL (se dibuja en el teléfono),
+    // porque entonces una misma imagen sirve para cualquier texto
+    public static long dailySeed(long nowMillis) {
+        return (nowMillis / DAY_MILLIS) * DAILY_SEED_STRIDE;
+    }
+
+    // Cantidad de URLs del plan (las imágenes más las de respaldo)
+    public int size() {
+        return quantity + Math.min(BACKUP_URLS, quantity);
+    }
+
+    // URL en esa posición. Las primeras se intercalan con URLs de respaldo: imagen 0,
+    // respaldo 0, imagen 1, respaldo 1, ... y luego siguen las imágenes restantes.
+    // viewWidth/viewHeight <= 0 o bytesPerSecond < 0 si aún no se conocen.
+    public String urlFor(int index, int viewWidth, int viewHeight, double bytesPerSecond) {
+        int[] size = plannedSize(viewWidth, viewHeight, bytesPerSecond);
+        String dimensions = "?width=" + size[0] + "&height=" + size[1];
+        int interleaved = 2 * Math.min(BACKUP_URLS, quantity);
+        if (index < interleaved) {
+            int image = index / 2;
+            if (index % 2 == 0) {
+                return baseUrl + dimensions + "&r=" + (seed + image);
+            }
+            return CAT_URL + dimensions + "&r=" + (seed + image + 1000);
+        }
+        int image = index - Math.min(BACKUP_URLS, quantity);
+        return baseUrl + dimensions + "&r=" + (seed + image);
+    }
+
+    // {ancho, alto} a pedir: cubrir la vista, sin superar lo que el enlace descarga en el
+    // tiempo aceptable
+    static int[] plannedSize(int viewWidth, int viewHeight, double bytesPerSecond) {
+        if (viewWidth <= 0 || viewHeight <= 0) {
+            return new int[]{DEFAULT_SIZE, DEFAULT_SIZE};
+        }
+        int width = bucketUp(viewWidth);
+        int height = bucketUp(viewHeight);
+        if (bytesPerSecond > 0) {
+            double budgetBytes = bytesPerSecond * TRANSFER_BUDGET_SECONDS;
+            double estimatedBytes = (double) width * height * BYTES_PER_PIXEL;
+            if (estimatedBytes > budgetBytes) {
+                double scale = Math.sqrt(budgetBytes / estimatedBytes);
+                width = bucketDown((int) (width * scale));
+                height = bucketDown((int) (height * scale));
+            }
+        }
+        return new int[]{width, height};
+    }
+
+    // Menor tamaño fijo que cubre 'pixels' (o el mayor disponible)
+    static int bucketUp(int pixels) {
+        for (int bucket : SIZE_BUCKETS) {
+            if (bucket >= pixels) {
+                return bucket;
+            }
+        }
+        return SIZE_BUCKETS[SIZE_BUCKETS.length - 1];
+    }
+
+    // Mayor tamaño fijo que no supera 'pixels' (o el menor disponible)
+    static int bucketDown(int pixels) {
+        for (int i = SIZE_BUCKETS.length - 1; i >= 0; i--) {
+            if (SIZE_BUCKETS[i] <= pixels) {
+                return SIZE_BUCKETS[i];
+            }
+        }
+        return SIZE_BUCKETS[0];
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.l2_20223209.network;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Estado de la red de toda la app. Registra un solo callback de red al iniciar y guarda el
+// último estado (transporte, medida, validada), así que consultarlo es instantáneo y no
+// toca ConnectivityManager. La alcanzabilidad real de cataas se confirma con un ping
+// con tiempo límite que además mide la latencia.
+public class ConnectivityMonitor {
+    private static final String TAG = "ConnectivityMonitor";
+    // Una confirmación reciente sobre la misma red se reutiliza sin volver a hacer ping
+    private static final long CONFIRMATION_TTL_MS = 30_000;
+
+    public static final int TRANSPORT_NONE = 0;
+    public static final int TRANSPORT_WIFI = 1;
+    public static final int TRANSPORT_CELLULAR = 2;
+    public static final int TRANSPORT_ETHERNET = 3;
+    public static final int TRANSPORT_OTHER = 4;
+
+    // Foto inmutable del estado de la red por defecto
+    public static class State {
+        public static final State DISCONNECTED = new State(null, TRANSPORT_NONE, false, false);
+
+        final Network network;
+        public final int transport;
+        // Red con costo por uso (datos móviles, hotspot): evitar descargas grandes
+        public final boolean metered;
+        // Android verificó que la red tiene salida a internet (sin portal cautivo)
+        public final boolean validated;
+
+        State(Network network, int transport, boolean metered, boolean validated) {
+            this.network = network;
+            this.transport = transport;
+            this.metered = metered;
+            this.validated = validated;
+        }
+
+        public boolean isConnected() {
+            return network != null;
+        }
+
+        public String getTransportName() {
+            switch (transport) {
+                case TRANSPORT_WIFI: return "Wi-Fi";
+                case TRANSPORT_CELLULAR: return "datos móviles";
+                case TRANSPORT_ETHERNET: return "Ethernet";
+                case TRANSPORT_NONE: return "sin red";
+                default: return "otra red";
+            }
+        }
+    }
+
+    private static ConnectivityMonitor instance;
+
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+    private volatile State state = State.DISCONNECTED;
+    // Último ping exitoso: red, latencia y cuándo se midió
+    private volatile Network confirmedNetwork;
+    private volatile long confirmedLatencyMs = -1;
+    private volatile long confirmedAtNanos;
+
+    private ConnectivityMonitor(Context context) {
+        ConnectivityManager connectivityManager =
+            (ConnectivityManager) context.getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return;
+        }
+        // Estado inicial una sola vez; desde aquí lo mantiene el callback
+        Network active = connectivityManager.getActiveNetwork();
+        if (active != null) {
+            NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(active);
+            if (capabilities != null) {
+                state = stateOf(active, capabilities);
+            }
+        }
+        connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onCapabilitiesChanged(@NonNull Network network,
+                                              @NonNull NetworkCapabilities capabilities) {
+                update(stateOf(network, capabilities));
+            }
+
+            @Override
+            public void onLost(@NonNull Network network) {
+                if (network.equals(state.network)) {
+                    update(State.DISCONNECTED);
+                }
+            }
+        });
+    }
+
+    public static synchronized ConnectivityMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConnectivityMonitor(context);
+        }
+        return instance;
+    }
+
+    private static State stateOf(Network network, NetworkCapabilities capabilities) {
+        int transport;
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            transport = TRANSPORT_WIFI;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            transport = TRANSPORT_CELLULAR;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            transport = TRANSPORT_ETHERNET;
+        } else {
+            transport = TRANSPORT_OTHER;
+        }
+        return new State(network, transport,
+            !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED),
+            capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED));
+    }
+
+    private void update(State newState) {
+        State oldState = state;
+        state = newState;
+        if (oldState.network != null && !oldState.network.equals(newState.network)) {
+            // Otra red: la confirmación anterior ya no vale
+            confirmedNetwork = null;
+        }
+        for (Consumer<State> listener : listeners) {
+            listener.accept(newState);
+        }
+    }
+
+    // Estado actual, sin consultar al sistema
+    public State getState() {
+        return state;
+    }
+
+    // El listener se llama desde el hilo de callbacks de red en cada cambio
+    public void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<State> listener) {
+        listeners.remove(listener);
+    }
+
+    // Latencia del último ping exitoso en la red actual, o -1
+    public long getLatencyMs() {
+        return state.network != null && state.network.equals(confirmedNetwork) ? confirmedLatencyMs : -1;
+    }
+
+    // Confirmar que cataas responde: sin red se resuelve al instante con -1; con una
+    // confirmación reciente en la misma red se reutiliza su latencia; si no, hace ping
+    public CompletableFuture<Long> checkReachability(long budgetMs) {
+        State current = state;
+        if (!current.isConnected()) {
+            return CompletableFuture.completedFuture(-1L);
+        }
+        if (current.network.equals(confirmedNetwork)
+                && System.nanoTime() - confirmedAtNanos < TimeUnit.MILLISECONDS.toNanos(CONFIRMATION_TTL_MS)) {
+            return CompletableFuture.completedFuture(confirmedLatencyMs);
+        }
+        return ping(budgetMs);
+    }
+
+    // Ping a cataas con un tiempo límite total (DNS, conexión y respuesta). Se completa con
+    // la latencia en ms, o -1 si no hubo respuesta a tiempo; nunca falla
+    public CompletableFuture<Long> ping(long budgetMs) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        Network network = state.network;
+        Call<Void> call = RetrofitClient.getNetworkService().ping();
+        call.timeout().timeout(budgetMs, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        call.enqueue(new Callback<Void>() {
+            @Override
+            public void onResponse(@NonNull Call<Void> call, @NonNull Response<Void> response) {
+                // Cualquier respuesta HTTP prueba que el servidor es alcanzable
+                long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (network != null) {
+                    confirmedLatencyMs = latencyMs;
+                    confirmedAtNanos = System.nanoTime();
+                    confirmedNetwork = network;
+                }
+                result.complete(latencyMs);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<Void> call, @NonNull Throwable t) {
+                Log.w(TAG, "Ping sin respuesta en " + budgetMs + " ms: " + t.getMessage());
+                result.complete(-1L);
+            }
+        });
+        return result;
+    }
+}
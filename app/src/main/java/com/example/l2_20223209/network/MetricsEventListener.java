@@ -0,0 +1,117 @@
+package com.example.l2_20223209.network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+// Mide cada fase de una llamada OkHttp (DNS, conexión TCP, TLS, tiempo hasta el primer
+// byte, cuerpo y total) y la registra en NetworkMetrics. OkHttp crea un listener por llamada,
+// así que los tiempos no necesitan sincronización. Con una conexión reutilizada no hay
+// fases de DNS, conexión ni TLS.
+public class MetricsEventListener extends EventListener {
+
+    public static final Factory FACTORY = call -> new MetricsEventListener(
+            NetworkMetrics.endpointOf(call.request().url()));
+
+    private final String endpoint;
+    private final NetworkMetrics metrics = NetworkMetrics.getInstance();
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+    private long bodyStart;
+
+    MetricsEventListener(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName,
+                       @NonNull List<InetAddress> inetAddressList) {
+        metrics.record(endpoint, NetworkMetrics.PHASE_DNS, System.nanoTime() - dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                             @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+        secureConnectStart = 0;
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        secureConnectStart = System.nanoTime();
+        // La conexión TCP termina donde empieza el handshake TLS
+        metrics.record(endpoint, NetworkMetrics.PHASE_CONNECT, secureConnectStart - connectStart);
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, Handshake handshake) {
+        metrics.record(endpoint, NetworkMetrics.PHASE_TLS, System.nanoTime() - secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, Protocol protocol) {
+        if (secureConnectStart == 0) {
+            metrics.record(endpoint, NetworkMetrics.PHASE_CONNECT, System.nanoTime() - connectStart);
+        }
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        if (requestStart != 0) {
+            metrics.record(endpoint, NetworkMetrics.PHASE_TTFB, System.nanoTime() - requestStart);
+        }
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        bodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        if (bodyStart != 0) {
+            metrics.record(endpoint, NetworkMetrics.PHASE_BODY, System.nanoTime() - bodyStart);
+        }
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        long total = System.nanoTime() - callStart;
+        metrics.record(endpoint, NetworkMetrics.PHASE_TOTAL, total);
+        metrics.recordCall(call.request().url(), total);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        metrics.record(endpoint, NetworkMetrics.PHASE_TOTAL, System.nanoTime() - callStart);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.l2_20223209.network;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import okhttp3.HttpUrl;
+
+// Latencias de red por endpoint y por fase de la llamada, alimentadas por
+// MetricsEventListener en el cliente OkHttp compartido, y tiempos de carga de las imágenes
+// de la presentación
+public class NetworkMetrics {
+
+    public static final int PHASE_DNS = 0;
+    public static final int PHASE_CONNECT = 1;
+    public static final int PHASE_TLS = 2;
+    public static final int PHASE_TTFB = 3;
+    public static final int PHASE_BODY = 4;
+    public static final int PHASE_TOTAL = 5;
+    static final String[] PHASE_NAMES = {"dns", "connect", "tls", "ttfb", "body", "total"};
+
+    static final String ENDPOINT_PING = "ping";
+    static final String ENDPOINT_CAT_SAYS = "cat/says";
+    static final String ENDPOINT_CAT = "cat";
+    static final String ENDPOINT_OTHER = "other";
+
+    // Fases de la carga de cada imagen de la presentación (ver ImageLoadTiming)
+    static final String[] IMAGE_PHASE_NAMES = {"queue", "network", "decode", "display"};
+    static final String SLIDESHOW = "slideshow";
+    // Agrupadores de pedidos (RequestCoalescer) cuyos contadores se exportan
+    public static final String COALESCING_IMAGES = "images";
+    static final String COALESCING = "coalescing";
+    // Duraciones de las últimas llamadas por URL, hasta que la imagen en pantalla las toma
+    private static final int MAX_RECENT_CALLS = 64;
+
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    private static final NetworkMetrics INSTANCE = new NetworkMetrics();
+
+    private final ConcurrentMap<String, LatencyHistogram[]> histograms = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] imageLoads = newHistograms(IMAGE_PHASE_NAMES.length);
+    private final ConcurrentMap<String, RequestCoalescer.Counts> coalescing = new ConcurrentHashMap<>();
+    private final Map<String, Long> recentCalls = new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_RECENT_CALLS;
+        }
+    };
+
+    public static NetworkMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public void record(String endpoint, int phase, long nanos) {
+        LatencyHistogram[] phases = histograms.get(endpoint);
+        if (phases == null) {
+            LatencyHistogram[] created = newHistograms(PHASE_NAMES.length);
+            phases = histograms.putIfAbsent(endpoint, created);
+            if (phases == null) {
+                phases = created;
+            }
+        }
+        phases[phase].recordNanos(nanos);
+    }
+
+    // Duración total de una llamada terminada, para separar la red de la decodificación de la
+    // imagen que la pidió
+    void recordCall(HttpUrl url, long nanos) {
+        synchronized (recentCalls) {
+            recentCalls.put(url.toString(), nanos);
+        }
+    }
+
+    // Duración de la última llamada a esa URL en ms (y olvidarla), o -1 si no hubo
+    public long takeCallMs(String url) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        if (parsed == null) {
+            return -1;
+        }
+        Long nanos;
+        synchronized (recentCalls) {
+            nanos = recentCalls.remove(parsed.toString());
+        }
+        return nanos != null ? nanos / 1_000_000 : -1;
+    }
+
+    // Tiempos de una imagen mostrada en ms; las fases que no se pudieron separar llegan
+    // negativas y no se registran
+    public void recordImageLoad(long queueMs, long networkMs, long decodeMs, long displayMs) {
+        long[] phases = {queueMs, networkMs, decodeMs, displayMs};
+        for (int phase = 0; phase < phases.length; phase++) {
+            if (phases[phase] >= 0) {
+                imageLoads[phase].recordNanos(phases[phase] * 1_000_000);
+            }
+        }
+    }
+
+    // Contadores compartidos por todos los agrupadores de ese nombre
+    public RequestCoalescer.Counts coalescingCounts(String name) {
+        return coalescing.computeIfAbsent(name, ignored -> new RequestCoalescer.Counts());
+    }
+
+    // Agrupar por endpoint de cataas: /ping, /cat/says/{texto} y /cat
+    static String endpointOf(HttpUrl url) {
+        String path = url.encodedPath();
+        if (path.startsWith("/ping")) {
+            return ENDPOINT_PING;
+        }
+        if (path.startsWith("/cat/says/")) {
+            return ENDPOINT_CAT_SAYS;
+        }
+        if (path.startsWith("/cat")) {
+            return ENDPOINT_CAT;
+        }
+        return ENDPOINT_OTHER;
+    }
+
+    // {"cat": {"dns": {"count": 3, "p50": 12.5, "p95": ..., "p99": ...}, ...}, ...} en ms
+    public String toJson() {
+        StringWriter out = new StringWriter();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginObject();
+            for (Map.Entry<String, LatencyHistogram[]> endpoint : sorted().entrySet()) {
+                json.name(endpoint.getKey());
+                writePhases(json, PHASE_NAMES, endpoint.getValue());
+            }
+            json.name(SLIDESHOW);
+            writePhases(json, IMAGE_PHASE_NAMES, imageLoads);
+            json.name(COALESCING).beginObject();
+            for (Map.Entry<String, RequestCoalescer.Counts> counts : new TreeMap<>(coalescing).entrySet()) {
+                json.name(counts.getKey()).beginObject();
+                json.name("requests").value(counts.getValue().getRequestCount());
+                json.name("fetches").value(counts.getValue().getFetchCount());
+                json.name("saved").value(counts.getValue().getSavedCount());
+                json.endObject();
+            }
+            json.endObject();
+            json.endObject();
+        } catch (IOException e) {
+            // StringWriter no lanza IOException
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    private static void writePhases(JsonWriter json, String[] names, LatencyHistogram[] phases)
+            throws IOException {
+        json.beginObject();
+        for (int phase = 0; phase < names.length; phase++) {
+            LatencyHistogram histogram = phases[phase];
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            json.name(names[phase]).beginObject();
+            json.name("count").value(count);
+            for (double percentile : PERCENTILES) {
+                json.name("p" + (int) percentile).value(histogram.percentileMs(percentile));
+            }
+            json.endObject();
+        }
+        json.endObject();
+    }
+
+    // Resumen legible para la pantalla de depuración
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram[]> endpoint : sorted().entrySet()) {
+            text.append(endpoint.getKey()).append('\n');
+            appendPhases(text, PHASE_NAMES, endpoint.getValue());
+        }
+        if (imageLoads[imageLoads.length - 1].getCount() > 0) {
+            text.append(SLIDESHOW).append('\n');
+            appendPhases(text, IMAGE_PHASE_NAMES, imageLoads);
+        }
+        for (Map.Entry<String, RequestCoalescer.Counts> counts : new TreeMap<>(coalescing).entrySet()) {
+            if (counts.getValue().getRequestCount() == 0) {
+                continue;
+            }
+            text.append(String.format(Locale.ROOT, "%s %s%n  pedidos=%d  descargas=%d  ahorradas=%d%n",
+                    COALESCING, counts.getKey(), counts.getValue().getRequestCount(),
+                    counts.getValue().getFetchCount(), counts.getValue().getSavedCount()));
+        }
+        return text.length() == 0 ? "Sin llamadas registradas" : text.toString();
+    }
+
+    private static void appendPhases(StringBuilder text, String[] names, LatencyHistogram[] phases) {
+        for (int phase = 0; phase < names.length; phase++) {
+            LatencyHistogram histogram = phases[phase];
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            text.append(String.format(Locale.ROOT, "  %-7s n=%d  p50=%.1f  p95=%.1f  p99=%.1f ms%n",
+                    names[phase], count, histogram.percentileMs(50),
+                    histogram.percentileMs(95), histogram.percentileMs(99)));
+        }
+    }
+
+    private static LatencyHistogram[] newHistograms(int count) {
+        LatencyHistogram[] created = new LatencyHistogram[count];
+        for (int i = 0; i < created.length; i++) {
+            created[i] = new LatencyHistogram();
+        }
+        return created;
+    }
+
+    private Map<String, LatencyHistogram[]> sorted() {
+        return new TreeMap<>(histograms);
+    }
+}
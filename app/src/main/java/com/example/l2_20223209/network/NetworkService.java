@@ -2,13 +2,23 @@ package com.example.l2_20223209.network;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
 import retrofit2.http.Path;
 import okhttp3.ResponseBody;
 
 public interface NetworkService {
+    // Prueba de alcance: siempre debe llegar al servidor
+    @Headers("Cache-Control: no-store")
     @GET("ping")
     Call<Void> ping();
     
+    // Cada pedido devuelve un gato al azar: no se guarda en la caché HTTP, que devolvería
+    // siempre el mismo
+    @Headers("Cache-Control: no-store")
     @GET("cat/says/{text}")
     Call<ResponseBody> getCatWithText(@Path("text") String text);
-}
\ No newline at end of file
+    
+    @Headers("Cache-Control: no-store")
+    @GET("cat")
+    Call<ResponseBody> getCat();
+}
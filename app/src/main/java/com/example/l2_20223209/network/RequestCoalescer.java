@@ -0,0 +1,96 @@
+package com.example.l2_20223209.network;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Agrupa pedidos simultáneos de la misma clave: mientras una descarga está en curso, los
+// demás pedidos de esa clave reciben el mismo future en lugar de iniciar otra. Cuando
+// termina (bien o mal) la clave se libera y el siguiente pedido vuelve a descargar.
+public class RequestCoalescer<K, V> {
+
+    // Contadores de pedidos y descargas; varios agrupadores pueden compartirlos (p. ej. los
+    // de NetworkMetrics, que suman los de todas las presentaciones)
+    public static final class Counts {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong fetches = new AtomicLong();
+
+        // Pedidos recibidos
+        public long getRequestCount() {
+            return requests.get();
+        }
+
+        // Descargas realmente iniciadas
+        public long getFetchCount() {
+            return fetches.get();
+        }
+
+        // Descargas ahorradas por compartir una en curso
+        public long getSavedCount() {
+            return requests.get() - fetches.get();
+        }
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counts counts;
+
+    public RequestCoalescer() {
+        this(new Counts());
+    }
+
+    public RequestCoalescer(Counts counts) {
+        this.counts = counts;
+    }
+
+    public CompletableFuture<V> get(K key, Supplier<CompletableFuture<V>> fetch) {
+        counts.requests.incrementAndGet();
+        CompletableFuture<V> placeholder = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, placeholder);
+        if (existing != null) {
+            return existing;
+        }
+
+        counts.fetches.incrementAndGet();
+        CompletableFuture<V> result;
+        try {
+            result = fetch.get();
+        } catch (RuntimeException e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((value, error) -> {
+            // Liberar la clave antes de avisar, para que un reintento descargue de nuevo
+            inFlight.remove(key, placeholder);
+            if (error != null) {
+                placeholder.completeExceptionally(error);
+            } else {
+                placeholder.complete(value);
+            }
+        });
+        return placeholder;
+    }
+
+    // Sumarse a la descarga en curso de esa clave: cuenta como un pedido ahorrado. Si no hay
+    // ninguna devuelve null sin contar nada (el llamador no descarga a través del agrupador)
+    public CompletableFuture<V> join(K key) {
+        CompletableFuture<V> existing = inFlight.get(key);
+        if (existing != null) {
+            counts.requests.incrementAndGet();
+        }
+        return existing;
+    }
+
+    public long getRequestCount() {
+        return counts.getRequestCount();
+    }
+
+    public long getFetchCount() {
+        return counts.getFetchCount();
+    }
+
+    public long getSavedCount() {
+        return counts.getSavedCount();
+    }
+}
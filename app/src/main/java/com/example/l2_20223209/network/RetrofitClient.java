@@ -1,34 +1,67 @@
 package com.example.l2_20223209.network;
 
+import com.example.l2_20223209.BuildConfig;
+
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
+
 import java.util.concurrent.TimeUnit;
 
 public class RetrofitClient {
     
     private static final String BASE_URL = "https://cataas.com/";
+    // Todo va al mismo host: más conexiones por host que el valor por defecto (5) para
+    // que la descarga anticipada de imágenes no bloquee las llamadas a la API
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    
+    private static OkHttpClient httpClient = null;
     private static Retrofit retrofit = null;
     
-    public static Retrofit getClient() {
-        if (retrofit == null) {
-            // Configurar logging interceptor
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+    // Cliente único de la app: un solo pool de conexiones y un solo dispatcher para Retrofit
+    // y Glide. Sin caché HTTP: las respuestas de la API son gatos al azar (no-store), el ping
+    // debe llegar siempre al servidor y Glide guarda las imágenes en su propia caché de disco
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
             
-            // Configurar OkHttpClient
-            OkHttpClient.Builder httpClient = new OkHttpClient.Builder()
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
                 .connectTimeout(10, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
-                .addInterceptor(loggingInterceptor);
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                // Mide las descargas reales para estimar el ancho de banda
+                .addNetworkInterceptor(BandwidthMeter.getInstance())
+                // Latencia por fase (DNS, TCP, TLS, primer byte, cuerpo) y por endpoint
+                .eventListenerFactory(MetricsEventListener.FACTORY);
+            
+            // Solo en debug y sin cuerpos: BODY guardaba en memoria y escribía en el log
+            // cada imagen completa
+            if (BuildConfig.DEBUG) {
+                HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+                loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
+                builder.addInterceptor(loggingInterceptor);
+            }
             
+            httpClient = builder.build();
+        }
+        return httpClient;
+    }
+    
+    public static synchronized Retrofit getClient() {
+        if (retrofit == null) {
             // Crear instancia de Retrofit
             retrofit = new Retrofit.Builder()
                 .baseUrl(BASE_URL)
                 .addConverterFactory(GsonConverterFactory.create())
-                .client(httpClient.build())
+                .client(getHttpClient())
                 .build();
         }
         return retrofit;
@@ -37,4 +70,4 @@ public class RetrofitClient {
     public static NetworkService getNetworkService() {
         return getClient().create(NetworkService.class);
     }
-}
\ No newline at end of file
+}
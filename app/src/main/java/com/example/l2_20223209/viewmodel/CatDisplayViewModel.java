@@ -1,76 +1,194 @@
 package com.example.l2_20223209.viewmodel;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.example.l2_20223209.concurrent.AppExecutors;
+import com.example.l2_20223209.concurrent.LaneExecutor;
+import com.example.l2_20223209.network.BandwidthMeter;
+import com.example.l2_20223209.network.CatUrlPlanner;
+import com.example.l2_20223209.network.NetworkMetrics;
+import com.example.l2_20223209.network.RequestCoalescer;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
 
-public class CatDisplayViewModel {
+// Estado de la presentación. Sobrevive a las rotaciones: las URLs planeadas, las descargas
+// en curso y el reloj siguen siendo los mismos, y la pantalla nueva solo vuelve a observar
+public class CatDisplayViewModel extends ViewModel {
     
+    private static final String TAG = "CatDisplayViewModel";
     private static final int SECONDS_PER_IMAGE = 4;
+    // Máximo de imágenes por presentación (~46 días); la memoria no depende de la cantidad
+    public static final int MAX_QUANTITY = 1_000_000;
+    // Imágenes por adelantado: al menos la siguiente, y más si las descargas son lentas
+    private static final int DEFAULT_MAX_PREFETCH = 4;
+    // Peso de la última medición en el promedio móvil de latencia
+    private static final double LATENCY_SMOOTHING = 0.3;
+    // Se despierta un poco antes de cada segundo para publicar el cambio en el primer frame
+    // que llegue al límite, no en el siguiente
+    private static final long FRAME_LEAD_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    // Con la red lenta se usa el paquete guardado, pero una de cada tantas imágenes se sigue
+    // pidiendo a la red para notar cuando vuelva a ser rápida
+    private static final int PACK_PROBE_EVERY = 5;
+    // Orígenes que reporta el cargador (nombres de DataSource de Glide)
+    private static final String SOURCE_REMOTE = "REMOTE";
+    private static final String SOURCE_MEMORY_CACHE = "MEMORY_CACHE";
     
-    private ScheduledExecutorService timerExecutor;
-    private ExecutorService networkExecutor;
+    // Ejecutores compartidos de la app: la descarga anticipada va al carril de E/S y los
+    // despertares de la presentación al de temporización (solo piden un frame)
+    private final AppExecutors executors = AppExecutors.getInstance();
     
-    // Callbacks para comunicación con la UI
-    private Consumer<Integer> timerUpdateCallback;
-    private Consumer<String> imageUrlCallback;
-    private Consumer<Boolean> nextButtonEnabledCallback;
-    private Consumer<String> errorCallback;
-    private Consumer<Integer> currentImageIndexCallback;
+    // Estado observable por la UI
+    private final MutableLiveData<Long> remainingSeconds = new MutableLiveData<>();
+    private final MutableLiveData<String> currentImageUrl = new MutableLiveData<>();
+    private final MutableLiveData<Integer> currentImageIndexData = new MutableLiveData<>(0);
+    private final MutableLiveData<Boolean> nextButtonEnabled = new MutableLiveData<>(false);
+    private final MutableLiveData<Event<String>> errorMessage = new MutableLiveData<>();
+    // Los configura la pantalla en cada onCreate; no deben retener la Activity
+    private volatile ImagePrefetcher imagePrefetcher;
+    private volatile OfflinePack offlinePack;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
-    // Estado del ViewModel
+    // Estado del ViewModel. Lo escribe solo el hilo de los frames (el principal) y es
+    // volatile para que otros hilos (descarga anticipada) lean valores publicados
     private int totalImages;
-    private int totalTimeSeconds;
-    private int currentTimeSeconds;
-    private int currentImageIndex;
-    private boolean isTimerFinished;
+    private volatile long currentTimeSeconds;
+    private volatile int currentImageIndex;
+    private volatile boolean isTimerFinished;
+    private boolean initialized;
     private String textOverlay;
-    private List<String> imageUrls;
-    private boolean isTimerRunning;
+    // El texto se dibuja en el teléfono: las URLs piden gatos sin texto
+    private boolean localTextOverlay;
+    // URLs planeadas, pedidos y tiempos de descarga anticipada, solo en la ventana desde la
+    // imagen actual hasta las adelantadas; cada URL se planea al necesitarla, cuando ya se
+    // conoce el tamaño de la vista y el ancho de banda, y se descarta cuando la presentación
+    // la deja atrás
+    private final SlideWindow window = new SlideWindow();
+    private CatUrlPlanner urlPlanner;
+    private volatile int viewportWidth;
+    private volatile int viewportHeight;
+    private volatile boolean isTimerRunning;
+    
+    // Presentación: reloj monótono, próximo límite esperado y el despertar ya programado
+    private SlideshowClock slideshowClock;
+    private long targetNanos;
+    private ScheduledFuture<?> nextWakeup;
+    private boolean frameRequested;
+    private volatile boolean closed;
+    
+    // Estado de la descarga anticipada
+    private int maxPrefetch = DEFAULT_MAX_PREFETCH;
+    private double averageFetchMs = -1;
+    // Descargas de imágenes en curso por URL: la imagen en pantalla y la descarga anticipada
+    // de la misma URL comparten una sola descarga y decodificación. Los contadores se exportan
+    // con NetworkMetrics
+    private final RequestCoalescer<String, Void> imageFetches = new RequestCoalescer<>(
+            NetworkMetrics.getInstance().coalescingCounts(NetworkMetrics.COALESCING_IMAGES));
+    
+    // Tiempos de la imagen en pantalla; los de las ya mostradas van a NetworkMetrics
+    private String pendingImageUrl;
+    private int pendingImageIndex;
+    private long pendingDueNanos;
+    private long pendingStartNanos;
+    
+    // Descarga anticipada en dos etapas bloqueantes: primero los bytes a la caché de disco
+    // (red) y luego el bitmap a la caché de memoria, con el mismo tamaño y opciones con que
+    // luego se muestra (decodificación)
+    public interface ImagePrefetcher {
+        void download(String imageUrl) throws Exception;
+
+        void decode(String imageUrl, int width, int height) throws Exception;
+    }
+    
+    // Imágenes guardadas para el texto de la presentación (CatPackStore), para cuando no hay
+    // red o es más lenta que el tiempo de cada imagen
+    public interface OfflinePack {
+        // Cantidad de imágenes guardadas; 0 si no hay paquete
+        int size();
+        
+        // Modelo local de la imagen en esa posición (se repiten si la presentación es más larga),
+        // o null si ya no queda ninguna guardada. Comprueba el disco: no llamar en el hilo principal
+        String imageAt(int index);
+        
+        // Como imageAt, pero solo con el índice en memoria (para el hilo principal)
+        String indexedImageAt(int index);
+        
+        boolean isNetworkAvailable();
+    }
     
     public CatDisplayViewModel() {
-        timerExecutor = Executors.newSingleThreadScheduledExecutor();
-        networkExecutor = Executors.newFixedThreadPool(2);
-        imageUrls = new ArrayList<>();
         isTimerRunning = false;
     }
     
-    // Configurar callbacks
-    public void setTimerUpdateCallback(Consumer<Integer> callback) {
-        this.timerUpdateCallback = callback;
+    // Estado observable
+    public LiveData<Long> getRemainingSeconds() {
+        return remainingSeconds;
+    }
+    
+    // URL de la imagen a mostrar; se publica cuando ya no hay una descarga anticipada en curso
+    public LiveData<String> getCurrentImageUrl() {
+        return currentImageUrl;
+    }
+    
+    public LiveData<Integer> getCurrentImageIndexData() {
+        return currentImageIndexData;
+    }
+    
+    public LiveData<Boolean> getNextButtonEnabled() {
+        return nextButtonEnabled;
     }
     
-    public void setImageUrlCallback(Consumer<String> callback) {
-        this.imageUrlCallback = callback;
+    public LiveData<Event<String>> getErrorMessage() {
+        return errorMessage;
     }
     
-    public void setNextButtonEnabledCallback(Consumer<Boolean> callback) {
-        this.nextButtonEnabledCallback = callback;
+    public void setImagePrefetcher(ImagePrefetcher prefetcher) {
+        this.imagePrefetcher = prefetcher;
     }
     
-    public void setErrorCallback(Consumer<String> callback) {
-        this.errorCallback = callback;
+    public void setOfflinePack(OfflinePack offlinePack) {
+        this.offlinePack = offlinePack;
     }
     
-    public void setCurrentImageIndexCallback(Consumer<Integer> callback) {
-        this.currentImageIndexCallback = callback;
+    // Máximo de imágenes a descargar por adelantado (0 desactiva la descarga anticipada)
+    public synchronized void setMaxPrefetch(int maxPrefetch) {
+        this.maxPrefetch = Math.max(0, maxPrefetch);
     }
     
-    // Inicializar el ViewModel con datos de la pantalla anterior
-    public void initialize(int quantity, String text) {
-        this.totalImages = quantity;
+    // Inicializar el ViewModel con datos de la pantalla anterior. firstImageUrl: primera imagen
+    // ya descargada por adelantado (o null); se usa tal cual como primera URL para encontrarla
+    // en caché. localTextOverlay: pedir gatos sin texto (la pantalla dibuja el texto sobre cada
+    // imagen). Solo la primera llamada tiene efecto: al recrear la pantalla la presentación
+    // sigue donde estaba
+    public void initialize(int quantity, String text, String firstImageUrl, boolean localTextOverlay) {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+        // La cantidad llega validada, pero se acota por si el Intent trae otro valor
+        this.totalImages = Math.max(0, Math.min(MAX_QUANTITY, quantity));
         this.textOverlay = text != null ? text : "";
-        this.totalTimeSeconds = quantity * SECONDS_PER_IMAGE;
-        this.currentTimeSeconds = totalTimeSeconds;
+        this.localTextOverlay = localTextOverlay;
+        this.currentTimeSeconds = (long) totalImages * SECONDS_PER_IMAGE;
         this.currentImageIndex = 0;
         this.isTimerFinished = false;
         
         // Generar URLs de imágenes
         generateImageUrls();
+        if (firstImageUrl != null && totalImages > 0) {
+            synchronized (this) {
+                window.plan(0, firstImageUrl);
+            }
+        }
         
         // Iniciar timer si no está corriendo
         if (!isTimerRunning) {
@@ -81,87 +199,296 @@ public class CatDisplayViewModel {
         loadCurrentImage();
     }
 
-    public void generateNewUrls() {
-        generateImageUrls();
-    }
-
     private void generateImageUrls() {
-        imageUrls.clear();
-        
-        // Usar URL más simple y confiable de CATAAS
-        String baseUrl = "https://cataas.com/cat";
-        
-        // Si hay texto, agregarlo a la URL, pero simplificado
-        if (!textOverlay.isEmpty() && !textOverlay.trim().isEmpty()) {
-            // Simplificar el texto para la URL
-            String simpleText = textOverlay.trim().replaceAll("[^a-zA-Z0-9\\s]", "").replace(" ", "%20");
-            if (simpleText.length() > 0 && simpleText.length() <= 50) {
-                baseUrl = "https://cataas.com/cat/says/" + simpleText;
+        synchronized (this) {
+            // Solo la semilla: las URLs se generan a pedido, así que es O(1) para cualquier cantidad.
+            // Sin texto en la URL, la semilla del día reutiliza los gatos ya descargados
+            long now = System.currentTimeMillis();
+            urlPlanner = localTextOverlay
+                    ? new CatUrlPlanner("", totalImages, CatUrlPlanner.dailySeed(now))
+                    : new CatUrlPlanner(textOverlay, totalImages, now);
+            window.clear();
+        }
+    }
+    
+    // URL de esa posición para adelantarla, planeándola la primera vez que se pide (luego no
+    // cambia, para que la descarga anticipada y la imagen en pantalla usen la misma). Corre
+    // en el carril de E/S: la imagen del paquete se busca en disco sin tomar el lock
+    private String imageUrlAt(int index) {
+        synchronized (this) {
+            String planned = window.urlAt(index);
+            if (planned != null) {
+                return planned;
             }
         }
-        
-        for (int i = 0; i < totalImages; i++) {
-            // Agregar parámetros para obtener imágenes diferentes
-            String url = baseUrl + "?width=400&height=400&r=" + (System.currentTimeMillis() + i);
-            imageUrls.add(url);
-            
-            // También agregar URLs de respaldo simples
-            if (i < 3) {
-                imageUrls.add("https://cataas.com/cat?width=400&height=400&r=" + (System.currentTimeMillis() + i + 1000));
+        OfflinePack pack = offlinePack;
+        String imageUrl = shouldUsePack(pack, index) ? pack.imageAt(index) : null;
+        synchronized (this) {
+            String planned = window.urlAt(index);
+            if (planned != null) {
+                // La pantalla llegó antes a esta posición
+                return planned;
+            }
+            if (imageUrl == null) {
+                imageUrl = remoteUrlAt(index);
             }
+            window.plan(index, imageUrl);
+            return imageUrl;
+        }
+    }
+    
+    private String remoteUrlAt(int index) {
+        return urlPlanner.urlFor(index, viewportWidth, viewportHeight,
+                BandwidthMeter.getInstance().getBytesPerSecond());
+    }
+    
+    // URL a mostrar en esa posición. Corre en el frame, así que no toca el disco: una imagen
+    // ya adelantada está en la caché de memoria del cargador y se usa tal cual (la del paquete
+    // quedó resuelta en el carril de E/S). Si no se adelantó, una imagen del paquete se vuelve
+    // a tomar del índice en memoria, porque pudo borrarse desde que se planeó (al guardar
+    // otras se borran las más antiguas), y si no queda ninguna se usa la red; si la planeada
+    // es de red y ahora corresponde usar el paquete (p. ej. se perdió la red), se cambia por
+    // la imagen guardada
+    private synchronized String displayUrlAt(int index) {
+        String imageUrl = window.urlAt(index);
+        if (imageUrl != null && window.isPrefetched(index)) {
+            return imageUrl;
+        }
+        OfflinePack pack = offlinePack;
+        boolean fromPack = imageUrl != null && !isRemote(imageUrl);
+        if (fromPack || shouldUsePack(pack, index)) {
+            String packUrl = pack != null ? pack.indexedImageAt(index) : null;
+            if (packUrl != null) {
+                imageUrl = packUrl;
+            } else if (fromPack) {
+                imageUrl = null;
+            }
+        }
+        if (imageUrl == null) {
+            imageUrl = remoteUrlAt(index);
+        }
+        window.plan(index, imageUrl);
+        return imageUrl;
+    }
+    
+    // Usar el paquete guardado: sin red, o si las descargas tardan más que cada imagen
+    private synchronized boolean shouldUsePack(OfflinePack pack, int index) {
+        if (pack == null || pack.size() == 0) {
+            return false;
         }
+        if (!pack.isNetworkAvailable()) {
+            return true;
+        }
+        return averageFetchMs > SECONDS_PER_IMAGE * 1000.0 && index % PACK_PROBE_EVERY != 0;
+    }
+    
+    // Las imágenes del paquete son locales; sus tiempos no cuentan como tiempos de red
+    private static boolean isRemote(String imageUrl) {
+        return imageUrl.startsWith("http");
+    }
+    
+    // Descartar lo que quedó detrás de la imagen actual, incluidos los tiempos de imágenes
+    // adelantadas que no se llegaron a mostrar
+    private synchronized void trimWindow(int currentIndex) {
+        window.advanceTo(currentIndex);
     }
     
+    // Tamaño medido del ImageView; las URLs que se planeen desde ahora piden ese tamaño
+    public void setViewportSize(int width, int height) {
+        if (width == viewportWidth && height == viewportHeight) {
+            return;
+        }
+        viewportWidth = width;
+        viewportHeight = height;
+        prefetchAhead();
+    }
+    // La presentación se calcula desde el instante de inicio: cada despertar lee el estado de
+    // ese instante, así que no acumula desfase aunque un despertar llegue tarde
     public void startTimer() {
-        if (isTimerRunning || isTimerFinished) {
+        synchronized (this) {
+            if (isTimerRunning || isTimerFinished) {
+                return;
+            }
+            isTimerRunning = true;
+            slideshowClock = new SlideshowClock(System.nanoTime(), totalImages, SECONDS_PER_IMAGE);
+            targetNanos = 0;
+        }
+        // Publicar el estado inicial
+        requestFrame();
+    }
+    
+    private void requestFrame() {
+        synchronized (this) {
+            if (closed || frameRequested) {
+                return;
+            }
+            frameRequested = true;
+        }
+        // Los cambios del contador y de imagen se aplican al dibujar el próximo frame; el
+        // instante del frame está en la escala de System.nanoTime()
+        mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(this::onFrame));
+    }
+    
+    // Hilo principal, al dibujar un frame
+    private void onFrame(long frameTimeNanos) {
+        SlideshowClock clock;
+        long target;
+        synchronized (this) {
+            frameRequested = false;
+            if (closed) {
+                return;
+            }
+            clock = slideshowClock;
+            target = targetNanos;
+        }
+        if (frameTimeNanos < target) {
+            // Se despertó antes del límite: el cambio corresponde a un frame siguiente
+            requestFrame();
             return;
         }
+        applySlideshowState(clock, frameTimeNanos);
+        scheduleWakeup(clock.nextBoundaryAfter(frameTimeNanos));
+    }
+    
+    private void applySlideshowState(SlideshowClock clock, long nowNanos) {
+        currentTimeSeconds = clock.remainingSecondsAt(nowNanos);
+        remainingSeconds.setValue(currentTimeSeconds);
         
-        isTimerRunning = true;
+        // Verificar si es momento de cambiar imagen
+        int expectedImageIndex = clock.imageIndexAt(nowNanos);
+        if (expectedImageIndex != currentImageIndex) {
+            currentImageIndex = expectedImageIndex;
+            loadCurrentImage();
+            currentImageIndexData.setValue(currentImageIndex);
+        }
         
-        timerExecutor.scheduleAtFixedRate(() -> {
-            if (currentTimeSeconds > 0) {
-                // Actualizar timer
-                if (timerUpdateCallback != null) {
-                    timerUpdateCallback.accept(currentTimeSeconds);
-                }
-                
-                // Verificar si es momento de cambiar imagen
-                int expectedImageIndex = (totalTimeSeconds - currentTimeSeconds) / SECONDS_PER_IMAGE;
-                if (expectedImageIndex != currentImageIndex && expectedImageIndex < totalImages) {
-                    currentImageIndex = expectedImageIndex;
-                    loadCurrentImage();
-                    
-                    if (currentImageIndexCallback != null) {
-                        currentImageIndexCallback.accept(currentImageIndex);
-                    }
-                }
-                
-                currentTimeSeconds--;
+        if (clock.isFinishedAt(nowNanos)) {
+            // Timer terminado
+            isTimerFinished = true;
+            isTimerRunning = false;
+            nextButtonEnabled.setValue(true);
+        }
+    }
+    
+    private synchronized void scheduleWakeup(long boundaryNanos) {
+        if (closed || boundaryNanos == Long.MAX_VALUE) {
+            return;
+        }
+        targetNanos = boundaryNanos;
+        long delayNanos = Math.max(0, boundaryNanos - FRAME_LEAD_NANOS - System.nanoTime());
+        nextWakeup = executors.schedule(this::requestFrame, delayNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private void loadCurrentImage() {
+        trimWindow(currentImageIndex);
+        if (currentImageIndex < urlPlanner.size()) {
+            String imageUrl = displayUrlAt(currentImageIndex);
+            int imageIndex = currentImageIndex;
+            synchronized (this) {
+                pendingImageUrl = imageUrl;
+                pendingImageIndex = imageIndex;
+                pendingDueNanos = System.nanoTime();
+                pendingStartNanos = pendingDueNanos;
+            }
+            // Si la imagen ya se está descargando por adelantado se espera a esa descarga en
+            // lugar de pedirla otra vez; si no, el cargador la descarga al mostrarla
+            CompletableFuture<Void> prefetch = imageFetches.join(imageUrl);
+            if (prefetch == null) {
+                LiveDataUtils.publish(currentImageUrl, imageUrl);
             } else {
-                // Timer terminado
-                isTimerFinished = true;
-                isTimerRunning = false;
-                
-                if (timerUpdateCallback != null) {
-                    timerUpdateCallback.accept(0);
-                }
-                
-                if (nextButtonEnabledCallback != null) {
-                    nextButtonEnabledCallback.accept(true);
+                prefetch.whenComplete((ignored, error) -> {
+                    if (imageIndex == currentImageIndex) {
+                        LiveDataUtils.publish(currentImageUrl, imageUrl);
+                    }
+                });
+            }
+        }
+        prefetchAhead();
+    }
+    
+    // Cuántas imágenes adelantar: las que alcanzan a descargarse mientras se muestran
+    // las anteriores, según la latencia promedio observada
+    private synchronized int prefetchDepth() {
+        if (maxPrefetch == 0) {
+            return 0;
+        }
+        if (averageFetchMs < 0) {
+            return Math.min(2, maxPrefetch);
+        }
+        int depth = 1 + (int) Math.ceil(averageFetchMs / (SECONDS_PER_IMAGE * 1000.0));
+        return Math.min(maxPrefetch, depth);
+    }
+    
+    // Encolar en el carril de E/S las siguientes imágenes que aún no se pidieron; la
+    // siguiente a mostrar va antes que las más lejanas. La URL se planea allá, porque una
+    // imagen del paquete se busca en disco
+    private void prefetchAhead() {
+        // Sin el tamaño de la vista aún no se puede planear ni decodificar al tamaño final
+        if (imagePrefetcher == null || viewportWidth <= 0 || viewportHeight <= 0) {
+            return;
+        }
+        int depth = prefetchDepth();
+        int last = Math.min(Math.min(totalImages, urlPlanner.size()) - 1, currentImageIndex + depth);
+        for (int index = currentImageIndex + 1; index <= last; index++) {
+            synchronized (this) {
+                if (!window.requestPrefetch(index)) {
+                    continue;
                 }
-                
-                // Cancelar timer
-                timerExecutor.shutdown();
             }
-        }, 0, 1, TimeUnit.SECONDS);
+            if (closed) {
+                // La pantalla ya se cerró
+                return;
+            }
+            int imageIndex = index;
+            int priority = index == currentImageIndex + 1
+                    ? LaneExecutor.PRIORITY_NORMAL : LaneExecutor.PRIORITY_LOW;
+            executors.io().execute(priority, () -> prefetchAt(imageIndex));
+        }
     }
     
-    private void loadCurrentImage() {
-        if (currentImageIndex < imageUrls.size() && imageUrlCallback != null) {
-            String imageUrl = imageUrls.get(currentImageIndex);
-            imageUrlCallback.accept(imageUrl);
+    // En el carril de E/S: planear la URL y adelantarla. Mientras corre, la imagen en pantalla
+    // de la misma URL se suma a esta descarga en lugar de pedirla otra vez
+    private void prefetchAt(int index) {
+        if (closed || index <= currentImageIndex) {
+            // La pantalla se cerró o ya llegó a esta posición y la pidió al cargador
+            return;
         }
+        String imageUrl = imageUrlAt(index);
+        imageFetches.get(imageUrl, () -> {
+            prefetch(index, imageUrl);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+    
+    private void prefetch(int index, String imageUrl) {
+        if (closed) {
+            // Pendiente de una pantalla ya cerrada: el carril es compartido, no se cancela
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            imagePrefetcher.download(imageUrl);
+            long downloaded = System.nanoTime();
+            imagePrefetcher.decode(imageUrl, viewportWidth, viewportHeight);
+            long decoded = System.nanoTime();
+            synchronized (this) {
+                window.recordPrefetch(index, imageUrl,
+                        (downloaded - start) / 1_000_000, (decoded - downloaded) / 1_000_000);
+            }
+            if (isRemote(imageUrl)) {
+                onFetchMeasured((decoded - start) / 1_000_000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Si falla, la imagen se vuelve a pedir al mostrarla
+            Log.w(TAG, "No se pudo adelantar la imagen: " + imageUrl, e);
+        }
+    }
+    
+    private synchronized void onFetchMeasured(long elapsedMs) {
+        averageFetchMs = averageFetchMs < 0 ? elapsedMs
+                : LATENCY_SMOOTHING * elapsedMs + (1 - LATENCY_SMOOTHING) * averageFetchMs;
     }
     
     public void pauseTimer() {
@@ -170,15 +497,13 @@ public class CatDisplayViewModel {
     }
     
     public void resumeTimer() {
-        // Si el timer se detuvo por alguna razón, reiniciarlo
-        if (!isTimerRunning && !isTimerFinished && currentTimeSeconds > 0) {
-            timerExecutor = Executors.newSingleThreadScheduledExecutor();
-            startTimer();
-        }
+        // El estado sale del reloj: si hubo frames sin dibujar (pantalla en segundo plano) el
+        // frame pendiente se pone al día al volver. Solo falta arrancar si nunca empezó
+        startTimer();
     }
     
     // Getters para el estado actual
-    public int getCurrentTimeSeconds() {
+    public long getCurrentTimeSeconds() {
         return currentTimeSeconds;
     }
     
@@ -195,37 +520,94 @@ public class CatDisplayViewModel {
     }
     
     public String getFormattedTime() {
-        int minutes = currentTimeSeconds / 60;
-        int seconds = currentTimeSeconds % 60;
-        return String.format("%02d:%02d", minutes, seconds);
+        return formatTime(currentTimeSeconds);
     }
     
-    public void cleanup() {
-        if (timerExecutor != null && !timerExecutor.isShutdown()) {
-            timerExecutor.shutdown();
+    // mm:ss, o h:mm:ss desde una hora (las presentaciones largas duran días)
+    public static String formatTime(long totalSeconds) {
+        long hours = totalSeconds / 3600;
+        long minutes = (totalSeconds % 3600) / 60;
+        long seconds = totalSeconds % 60;
+        if (hours > 0) {
+            return String.format(Locale.ROOT, "%d:%02d:%02d", hours, minutes, seconds);
         }
-        if (networkExecutor != null && !networkExecutor.isShutdown()) {
-            networkExecutor.shutdown();
+        return String.format(Locale.ROOT, "%02d:%02d", minutes, seconds);
+    }
+    
+    // La pantalla se cerró definitivamente (no una rotación)
+    @Override
+    protected void onCleared() {
+        synchronized (this) {
+            closed = true;
+            if (nextWakeup != null) {
+                nextWakeup.cancel(false);
+            }
         }
     }
     
-    // Método para obtener la URL de la imagen actual
-    public String getCurrentImageUrl() {
-        if (currentImageIndex < imageUrls.size()) {
-            return imageUrls.get(currentImageIndex);
+    // El cargador empezó a cargar la imagen en pantalla
+    public synchronized void onImageLoadStarted(String imageUrl) {
+        if (imageUrl.equals(pendingImageUrl)) {
+            pendingStartNanos = System.nanoTime();
         }
-        return null;
     }
     
     // Método para manejar errores de carga de imagen
-    public void onImageLoadError() {
-        if (errorCallback != null) {
-            errorCallback.accept("Error al cargar imagen de gato");
+    public void onImageLoadError(String imageUrl) {
+        if (!recordLoad(imageUrl, false, "error")) {
+            return;
+        }
+        LiveDataUtils.publish(errorMessage, new Event<>("Error al cargar imagen de gato"));
+    }
+    
+    // Método para cuando se carga exitosamente una imagen; 'source' es el origen que reporta
+    // el cargador (caché de memoria, caché de disco o red)
+    public void onImageLoadSuccess(String imageUrl, String source) {
+        recordLoad(imageUrl, true, source);
+    }
+    
+    // Registrar los tiempos de la imagen en pantalla; false si el evento es de una imagen
+    // que ya no se está mostrando
+    private boolean recordLoad(String imageUrl, boolean success, String source) {
+        ImageLoadTiming timing;
+        long[] prefetched;
+        synchronized (this) {
+            if (!imageUrl.equals(pendingImageUrl)) {
+                return false;
+            }
+            long now = System.nanoTime();
+            long displayMs = (now - pendingStartNanos) / 1_000_000;
+            prefetched = window.takePrefetch(pendingImageIndex);
+            long[] split = prefetched != null ? prefetched
+                    : success ? splitLoad(imageUrl, source, displayMs) : new long[]{-1, -1};
+            timing = new ImageLoadTiming(pendingImageIndex, imageUrl, success, source,
+                    (pendingStartNanos - pendingDueNanos) / 1_000_000, split[0], split[1], displayMs);
+            pendingImageUrl = null;
+        }
+        NetworkMetrics.getInstance().recordImageLoad(timing.getQueueMs(), timing.getNetworkMs(),
+                timing.getDecodeMs(), timing.getDisplayMs());
+        if (success && prefetched == null && isRemote(imageUrl)) {
+            // Carga sin adelantar: también cuenta para ajustar cuánto adelantar
+            onFetchMeasured(timing.getDisplayMs());
         }
+        Log.d(TAG, timing.toString());
+        return true;
     }
     
-    // Método para cuando se carga exitosamente una imagen
-    public void onImageLoadSuccess() {
-        // Imagen cargada exitosamente, no se necesita acción especial
+    // {red, decodificación} de una imagen que no se adelantó, según de dónde la sacó el
+    // cargador: de la caché de memoria no hay ninguna de las dos, del disco (o del paquete)
+    // solo decodificación, y de la red la llamada HTTP a esa URL y el resto es decodificación
+    private static long[] splitLoad(String imageUrl, String source, long displayMs) {
+        if (SOURCE_MEMORY_CACHE.equals(source)) {
+            return new long[]{0, 0};
+        }
+        if (!SOURCE_REMOTE.equals(source)) {
+            return new long[]{0, displayMs};
+        }
+        long networkMs = NetworkMetrics.getInstance().takeCallMs(imageUrl);
+        if (networkMs < 0) {
+            return new long[]{-1, -1};
+        }
+        return new long[]{networkMs, Math.max(0, displayMs - networkMs)};
     }
 }
\ No newline at end of file
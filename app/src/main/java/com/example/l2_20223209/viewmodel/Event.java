@@ -0,0 +1,21 @@
+package com.example.l2_20223209.viewmodel;
+
+// Valor de un LiveData que se atiende una sola vez (mensajes, toasts): al recrear la
+// pantalla el observador vuelve a recibir el último valor, pero si ya se consumió no se repite
+public class Event<T> {
+    private final T content;
+    private boolean handled;
+
+    public Event(T content) {
+        this.content = content;
+    }
+
+    // El contenido, o null si ya se consumió
+    public synchronized T consume() {
+        if (handled) {
+            return null;
+        }
+        handled = true;
+        return content;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.l2_20223209.viewmodel;
+
+import java.util.Locale;
+
+// Tiempos de carga de una imagen de la presentación, en milisegundos:
+// - cola: desde que tocaba mostrar la imagen hasta que se pidió al cargador
+// - red: descarga de la imagen (0 si vino de una caché, -1 si no se pudo separar)
+// - decodificación: desde los bytes hasta el bitmap al tamaño de la vista (-1 si no se separó)
+// - mostrar: desde que se pidió al cargador hasta que la imagen quedó en pantalla
+public final class ImageLoadTiming {
+    private final int imageIndex;
+    private final String imageUrl;
+    private final boolean success;
+    private final String source;
+    private final long queueMs;
+    private final long networkMs;
+    private final long decodeMs;
+    private final long displayMs;
+
+    public ImageLoadTiming(int imageIndex, String imageUrl, boolean success, String source,
+                           long queueMs, long networkMs, long decodeMs, long displayMs) {
+        this.imageIndex = imageIndex;
+        this.imageUrl = imageUrl;
+        this.success = success;
+        this.source = source;
+        this.queueMs = queueMs;
+        this.networkMs = networkMs;
+        this.decodeMs = decodeMs;
+        this.displayMs = displayMs;
+    }
+
+    public int getImageIndex() { return imageIndex; }
+    public String getImageUrl() { return imageUrl; }
+    public boolean isSuccess() { return success; }
+    // Origen reportado por el cargador (memoria, disco o red)
+    public String getSource() { return source; }
+    public long getQueueMs() { return queueMs; }
+    public long getNetworkMs() { return networkMs; }
+    public long getDecodeMs() { return decodeMs; }
+    public long getDisplayMs() { return displayMs; }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "imagen %d %s (%s): cola=%dms red=%dms decodificación=%dms mostrar=%dms",
+                imageIndex, success ? "ok" : "error", source, queueMs, networkMs, decodeMs, displayMs);
+    }
+}
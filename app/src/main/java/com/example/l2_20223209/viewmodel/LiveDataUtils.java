@@ -0,0 +1,21 @@
+package com.example.l2_20223209.viewmodel;
+
+import android.os.Looper;
+
+import androidx.lifecycle.MutableLiveData;
+
+final class LiveDataUtils {
+
+    private LiveDataUtils() {
+    }
+
+    // En el hilo principal el valor llega a los observadores de inmediato (en el mismo frame);
+    // desde otro hilo se publica con postValue
+    static <T> void publish(MutableLiveData<T> liveData, T value) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            liveData.setValue(value);
+        } else {
+            liveData.postValue(value);
+        }
+    }
+}
@@ -1,58 +1,139 @@
 package com.example.l2_20223209.viewmodel;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.l2_20223209.concurrent.AppExecutors;
+import com.example.l2_20223209.data.CatPackStore;
+import com.example.l2_20223209.network.BandwidthMeter;
+import com.example.l2_20223209.network.CatUrlPlanner;
+import com.example.l2_20223209.network.ConnectivityMonitor;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
-public class MainViewModel {
+// Estado del formulario y de la conexión. Vive mientras la pantalla exista (sobrevive a las
+// rotaciones), y la UI lo observa por LiveData
+public class MainViewModel extends AndroidViewModel {
+    
+    // Tiempo máximo para que cataas responda al ping de verificación
+    private static final long PING_BUDGET_MS = 3000;
+    // Espera desde el último cambio del formulario antes de descargar la primera imagen,
+    // para no descargar una por cada letra escrita
+    private static final long PREWARM_DELAY_MS = 600;
     
-    private ExecutorService executor = Executors.newFixedThreadPool(2);
+    // Descarga anticipada de la primera imagen (bytes a la caché de disco, sin decodificar)
+    public interface ImagePrewarmer {
+        void prewarm(String imageUrl);
+    }
     
-    // Callbacks para comunicarse con la UI
-    private Consumer<Boolean> connectionStatusCallback;
-    private Consumer<String> toastMessageCallback;
-    private Consumer<Boolean> beginButtonEnabledCallback;
-    private Consumer<Boolean> textInputEnabledCallback;
+    private final ConnectivityMonitor connectivityMonitor;
+    private final Consumer<ConnectivityMonitor.State> networkListener = this::onNetworkChanged;
+    private final CatPackStore packStore;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     
-    // Variables para almacenar el estado
-    private boolean connectionStatus = false;
-    private boolean isBeginButtonEnabled = false;
-    private boolean isTextInputEnabled = false;
+    // Estado observable por la UI
+    // Sin valor hasta la primera verificación (el ícono inicial es el del layout)
+    private final MutableLiveData<Boolean> connectionStatus = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> checkingConnection = new MutableLiveData<>(false);
+    private final MutableLiveData<Event<String>> toastMessage = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> beginButtonEnabled = new MutableLiveData<>(false);
+    private final MutableLiveData<Boolean> textInputEnabled = new MutableLiveData<>(false);
     
-    // Variables para almacenar los datos del formulario
+    // Variables para almacenar los datos del formulario. Las escribe el hilo principal; las
+    // del texto son volatile porque el pre-calentamiento las vuelve a leer en el carril de E/S
     private String cantidad = "";
-    private String textoSeleccionado = "Elegir";
-    private String textoEscrito = "";
-    private boolean conexionVerificada = false;
+    private volatile String textoSeleccionado = "Elegir";
+    private volatile String textoEscrito = "";
+    // Dibujar el texto en el teléfono: se piden gatos sin texto, que sirven para cualquier texto.
+    // Opcional: por defecto el texto lo sigue dibujando el servidor
+    private volatile boolean dibujarTextoLocal = false;
+    private volatile boolean conexionVerificada = false;
+    
+    // Pre-calentamiento: el ping de verificación ya deja abierta en el pool compartido la
+    // conexión TLS a cataas; además se descarga la primera imagen del formulario actual
+    private ImagePrewarmer imagePrewarmer;
+    private int expectedImageWidth;
+    private int expectedImageHeight;
+    private int prewarmGeneration;
+    private String prewarmedText;
+    private String prewarmedImageUrl;
     
-    // Métodos para configurar callbacks
-    public void setConnectionStatusCallback(Consumer<Boolean> callback) {
-        this.connectionStatusCallback = callback;
+    public MainViewModel(@NonNull Application application) {
+        super(application);
+        this.connectivityMonitor = ConnectivityMonitor.getInstance(application);
+        connectivityMonitor.addListener(networkListener);
+        // El índice del paquete se lee en el carril de E/S; hasta entonces cuenta como vacío y
+        // al terminar se vuelve a validar el formulario
+        this.packStore = CatPackStore.getInstance(application);
+        packStore.whenLoaded().thenRun(() -> mainHandler.post(this::validateForm));
     }
     
-    public void setToastMessageCallback(Consumer<String> callback) {
-        this.toastMessageCallback = callback;
+    // Si se pierde la red después de verificar, hay que volver a comprobar
+    private void onNetworkChanged(ConnectivityMonitor.State state) {
+        if (!state.isConnected() && conexionVerificada) {
+            setConexionVerificada(false);
+            showToast("Se perdió la conexión a internet");
+        }
     }
     
-    public void setBeginButtonEnabledCallback(Consumer<Boolean> callback) {
-        this.beginButtonEnabledCallback = callback;
+    private void showToast(String message) {
+        LiveDataUtils.publish(toastMessage, new Event<>(message));
     }
     
-    public void setTextInputEnabledCallback(Consumer<Boolean> callback) {
-        this.textInputEnabledCallback = callback;
+    // La pantalla lo configura en cada onCreate; no debe retener la Activity
+    public void setImagePrewarmer(ImagePrewarmer prewarmer) {
+        this.imagePrewarmer = prewarmer;
     }
     
-    // Getters para el estado actual
-    public boolean getConnectionStatus() {
+    // Tamaño aproximado que tendrá la imagen en la presentación, para pedirla a ese tamaño
+    public void setExpectedImageSize(int width, int height) {
+        this.expectedImageWidth = width;
+        this.expectedImageHeight = height;
+    }
+    
+    // Estado observable
+    public LiveData<Boolean> getConnectionStatus() {
         return connectionStatus;
     }
     
-    public boolean getIsBeginButtonEnabled() {
-        return isBeginButtonEnabled;
+    // Verificación en curso (el botón se deshabilita mientras tanto)
+    public LiveData<Boolean> getCheckingConnection() {
+        return checkingConnection;
+    }
+    
+    public LiveData<Event<String>> getToastMessage() {
+        return toastMessage;
+    }
+    
+    public LiveData<Boolean> getBeginButtonEnabled() {
+        return beginButtonEnabled;
+    }
+    
+    public LiveData<Boolean> getTextInputEnabled() {
+        return textInputEnabled;
     }
     
-    public boolean getIsTextInputEnabled() {
-        return isTextInputEnabled;
+    public boolean isConexionVerificada() {
+        return conexionVerificada;
+    }
+    
+    // Imágenes guardadas para usar sin conexión con el texto actual (solo el índice en memoria,
+    // se llama con cada letra escrita)
+    public int getOfflinePackSize() {
+        return packStore.count(serverText());
+    }
+    
+    // Se puede comenzar con la conexión verificada o, sin ella, con un paquete guardado
+    public boolean canBegin() {
+        return conexionVerificada || getOfflinePackSize() > 0;
     }
     
     // Métodos para actualizar datos del formulario
@@ -72,23 +153,20 @@ public class MainViewModel {
         validateForm();
     }
     
+    public void setDibujarTextoLocal(boolean dibujarTextoLocal) {
+        this.dibujarTextoLocal = dibujarTextoLocal;
+        validateForm();
+    }
+    
     public void setConexionVerificada(boolean verificada) {
         this.conexionVerificada = verificada;
-        this.connectionStatus = verificada;
-        
-        if (connectionStatusCallback != null) {
-            connectionStatusCallback.accept(verificada);
-        }
+        LiveDataUtils.publish(connectionStatus, verificada);
         validateForm();
     }
     
     private void updateTextInputVisibility() {
         boolean shouldEnable = "Sí".equals(textoSeleccionado);
-        this.isTextInputEnabled = shouldEnable;
-        
-        if (textInputEnabledCallback != null) {
-            textInputEnabledCallback.accept(shouldEnable);
-        }
+        LiveDataUtils.publish(textInputEnabled, shouldEnable);
         
         // Si se cambia a "No", limpiar el texto escrito
         if (!shouldEnable) {
@@ -98,13 +176,62 @@ public class MainViewModel {
     
     private void validateForm() {
         boolean isValid = isFormValid();
-        boolean shouldEnableButton = isValid && conexionVerificada;
+        boolean shouldEnableButton = isValid && canBegin();
         
-        this.isBeginButtonEnabled = shouldEnableButton;
+        LiveDataUtils.publish(beginButtonEnabled, shouldEnableButton);
         
-        if (beginButtonEnabledCallback != null) {
-            beginButtonEnabledCallback.accept(shouldEnableButton);
+        if (isValid && conexionVerificada) {
+            schedulePrewarm();
+        }
+    }
+    
+    // Descargar la primera imagen cuando el formulario deja de cambiar. Solo depende del
+    // texto de la URL (la cantidad no cambia la primera URL), así que no se repite por la
+    // cantidad, ni por el texto si se dibuja en el teléfono
+    private synchronized void schedulePrewarm() {
+        if (imagePrewarmer == null) {
+            return;
+        }
+        String text = serverText();
+        if (text.equals(prewarmedText)) {
+            return;
+        }
+        int generation = ++prewarmGeneration;
+        // El carril de temporización solo despierta; la URL se planea en el de E/S
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.schedule(() -> executors.io().execute(() -> prewarm(generation, text)),
+            PREWARM_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    private void prewarm(int generation, String text) {
+        String imageUrl;
+        synchronized (this) {
+            if (generation != prewarmGeneration || !conexionVerificada || !text.equals(serverText())) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            imageUrl = new CatUrlPlanner(text, 1, dibujarTextoLocal ? CatUrlPlanner.dailySeed(now) : now)
+                .urlFor(0, expectedImageWidth, expectedImageHeight,
+                    BandwidthMeter.getInstance().getBytesPerSecond());
+            prewarmedText = text;
+            prewarmedImageUrl = imageUrl;
         }
+        imagePrewarmer.prewarm(imageUrl);
+    }
+    
+    private String currentText() {
+        return "Sí".equals(textoSeleccionado) ? textoEscrito.trim() : "";
+    }
+    
+    // Texto que va en la URL de las imágenes: ninguno si se dibuja en el teléfono
+    private String serverText() {
+        return dibujarTextoLocal ? "" : currentText();
+    }
+    
+    // URL de la primera imagen ya descargada para el formulario actual, o null. La
+    // presentación la usa como primera imagen para encontrarla en caché
+    public synchronized String getPrewarmedImageUrl() {
+        return serverText().equals(prewarmedText) ? prewarmedImageUrl : null;
     }
     
     public boolean isFormValid() {
@@ -113,6 +240,11 @@ public class MainViewModel {
             return false;
         }
         
+        // Y que sea un número dentro del rango permitido
+        if (parseCantidad() < 1) {
+            return false;
+        }
+        
         // Si se seleccionó "Sí" en texto, debe haber texto escrito
         if ("Sí".equals(textoSeleccionado) && textoEscrito.trim().isEmpty()) {
             return false;
@@ -131,83 +263,102 @@ public class MainViewModel {
         
         if (cantidad.trim().isEmpty()) {
             errorMessage = "La cantidad no puede estar vacía";
+        } else if (parseCantidad() < 1) {
+            errorMessage = String.format(Locale.ROOT, "La cantidad debe estar entre 1 y %,d",
+                CatDisplayViewModel.MAX_QUANTITY);
         } else if ("Elegir".equals(textoSeleccionado)) {
             errorMessage = "Debe seleccionar una opción en Texto";
         } else if ("Sí".equals(textoSeleccionado) && textoEscrito.trim().isEmpty()) {
             errorMessage = "Debe escribir texto cuando selecciona Sí";
-        } else if (!conexionVerificada) {
+        } else if (!canBegin()) {
             errorMessage = "Debe comprobar la conexión antes de comenzar";
         }
         
-        if (toastMessageCallback != null && !errorMessage.isEmpty()) {
-            toastMessageCallback.accept(errorMessage);
+        if (!errorMessage.isEmpty()) {
+            showToast(errorMessage);
         }
     }
     
+    // Verificar la conexión: el estado de la red ya está en caché, así que sin red la
+    // respuesta es inmediata; con red se confirma con un ping a cataas que mide la latencia
     public void checkInternetConnection() {
-        executor.execute(() -> {
-            try {
-                // Simulamos una verificación de conectividad
-                Thread.sleep(1000); // Simular delay de red
-                
-                // Aquí iría la lógica real de verificación de internet
-                boolean hasConnection = checkRealConnection();
-                
-                // Actualizar estado
-                setConexionVerificada(hasConnection);
-                
-                String message = hasConnection ? "Conexión exitosa" : "Sin conexión a internet";
-                if (toastMessageCallback != null) {
-                    toastMessageCallback.accept(message);
-                }
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                if (toastMessageCallback != null) {
-                    toastMessageCallback.accept("Error al verificar conexión");
-                }
-            }
+        ConnectivityMonitor.State state = connectivityMonitor.getState();
+        if (!state.isConnected()) {
+            setConexionVerificada(false);
+            int packSize = getOfflinePackSize();
+            showToast(packSize > 0
+                ? "Sin conexión a internet: se usarán " + packSize + " imágenes guardadas"
+                : "Sin conexión a internet");
+            return;
+        }
+        if (Boolean.TRUE.equals(checkingConnection.getValue())) {
+            // Ya hay una verificación en curso (p. ej. iniciada antes de rotar la pantalla)
+            return;
+        }
+        
+        LiveDataUtils.publish(checkingConnection, true);
+        connectivityMonitor.checkReachability(PING_BUDGET_MS).thenAccept(latencyMs -> {
+            boolean hasConnection = latencyMs >= 0;
+            setConexionVerificada(hasConnection);
+            LiveDataUtils.publish(checkingConnection, false);
+            
+            showToast(hasConnection
+                ? "Conexión exitosa (" + state.getTransportName() + ", " + latencyMs + " ms)"
+                : "El servidor no responde");
         });
     }
     
-    private boolean checkRealConnection() {
-        // Aquí implementarías la verificación real de internet
-        // Por ahora, simularemos que siempre hay conexión
-        return true;
-    }
-    
     public void beginProcess() {
-        if (!isFormValid() || !conexionVerificada) {
+        if (!isFormValid() || !canBegin()) {
             showValidationError();
             return;
         }
         
-        if (toastMessageCallback != null) {
-            toastMessageCallback.accept("Comenzando proceso...");
-        }
+        showToast("Comenzando proceso...");
     }
     
     // Método para obtener los datos del formulario
     public FormData getFormData() {
-        return new FormData(cantidad, textoSeleccionado, textoEscrito);
+        return new FormData(cantidad, parseCantidad(), textoSeleccionado, textoEscrito, dibujarTextoLocal);
     }
     
-    public void cleanup() {
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
+    // Cantidad como número, o -1 si no es un entero entre 1 y MAX_QUANTITY. Se analiza como
+    // long para que un número muy largo sea inválido en lugar de desbordar o lanzar excepción
+    private int parseCantidad() {
+        String digits = cantidad.trim();
+        if (digits.isEmpty() || digits.length() > 18) {
+            return -1;
         }
+        long value;
+        try {
+            value = Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return value >= 1 && value <= CatDisplayViewModel.MAX_QUANTITY ? (int) value : -1;
+    }
+    
+    @Override
+    protected void onCleared() {
+        connectivityMonitor.removeListener(networkListener);
     }
     
     // Clase para encapsular los datos del formulario
     public static class FormData {
         public final String cantidad;
+        // Cantidad validada (-1 si no es válida)
+        public final int cantidadImagenes;
         public final String textoSeleccionado;
         public final String textoEscrito;
+        public final boolean dibujarTextoLocal;
         
-        public FormData(String cantidad, String textoSeleccionado, String textoEscrito) {
+        public FormData(String cantidad, int cantidadImagenes, String textoSeleccionado, String textoEscrito,
+                        boolean dibujarTextoLocal) {
             this.cantidad = cantidad;
+            this.cantidadImagenes = cantidadImagenes;
             this.textoSeleccionado = textoSeleccionado;
             this.textoEscrito = textoEscrito;
+            this.dibujarTextoLocal = dibujarTextoLocal;
         }
     }
 }
\ No newline at end of file
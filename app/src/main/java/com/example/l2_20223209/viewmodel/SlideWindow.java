@@ -0,0 +1,77 @@
+package com.example.l2_20223209.viewmodel;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Estado por posición de la presentación, solo en la ventana desde la imagen actual hasta
+// las adelantadas: la URL planeada, si ya se pidió adelantarla y los tiempos de esa descarga.
+// Todo lo que queda detrás de la imagen actual se descarta, así que el tamaño depende de
+// cuánto se adelanta y no de la cantidad de imágenes. No es thread-safe: el llamador sincroniza.
+public final class SlideWindow {
+
+    private final Map<Integer, String> plannedUrls = new HashMap<>();
+    private final Set<Integer> prefetchRequested = new HashSet<>();
+    // Tiempos {red, decodificación} de las posiciones ya adelantadas
+    private final Map<Integer, long[]> prefetchTimings = new HashMap<>();
+    // Primera posición que sigue en la ventana; las anteriores ya no se guardan
+    private int start;
+
+    // URL planeada para esa posición, o null si aún no se planeó
+    public String urlAt(int index) {
+        return plannedUrls.get(index);
+    }
+
+    public void plan(int index, String imageUrl) {
+        if (index >= start) {
+            plannedUrls.put(index, imageUrl);
+        }
+    }
+
+    // Marcar la posición como pedida; false si ya se había pedido o quedó atrás
+    public boolean requestPrefetch(int index) {
+        return index >= start && prefetchRequested.add(index);
+    }
+
+    public boolean isPrefetched(int index) {
+        return prefetchTimings.containsKey(index);
+    }
+
+    // Guardar los tiempos de una descarga anticipada. Se ignora si llega tarde (la posición
+    // ya quedó atrás) o si la posición ya no muestra esa URL (p. ej. se cambió por el paquete)
+    public void recordPrefetch(int index, String imageUrl, long networkMs, long decodeMs) {
+        if (index >= start && imageUrl.equals(plannedUrls.get(index))) {
+            prefetchTimings.put(index, new long[]{networkMs, decodeMs});
+        }
+    }
+
+    // Tiempos de la descarga anticipada de esa posición (y olvidarlos), o null si no hubo
+    public long[] takePrefetch(int index) {
+        return prefetchTimings.remove(index);
+    }
+
+    // Descartar lo que quedó detrás de la imagen actual: la ventana solo avanza
+    public void advanceTo(int index) {
+        if (index <= start) {
+            return;
+        }
+        start = index;
+        plannedUrls.keySet().removeIf(planned -> planned < index);
+        prefetchRequested.removeIf(requested -> requested < index);
+        prefetchTimings.keySet().removeIf(prefetched -> prefetched < index);
+    }
+
+    // Empezar de nuevo desde la primera posición (URLs regeneradas)
+    public void clear() {
+        start = 0;
+        plannedUrls.clear();
+        prefetchRequested.clear();
+        prefetchTimings.clear();
+    }
+
+    // Entradas guardadas entre URLs, pedidos y tiempos
+    public int size() {
+        return plannedUrls.size() + prefetchRequested.size() + prefetchTimings.size();
+    }
+}
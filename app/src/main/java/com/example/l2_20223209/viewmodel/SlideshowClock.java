@@ -0,0 +1,55 @@
+package com.example.l2_20223209.viewmodel;
+
+// Estado de la presentación calculado a partir del instante de inicio en un reloj monótono,
+// en lugar de contar ticks: un tick atrasado o perdido no acumula desfase, el siguiente
+// simplemente lee el estado correcto para ese instante.
+public final class SlideshowClock {
+
+    static final long SECOND_NANOS = 1_000_000_000L;
+
+    private final long startNanos;
+    private final int totalImages;
+    private final int secondsPerImage;
+
+    public SlideshowClock(long startNanos, int totalImages, int secondsPerImage) {
+        this.startNanos = startNanos;
+        this.totalImages = totalImages;
+        this.secondsPerImage = secondsPerImage;
+    }
+
+    // En long: cantidades grandes desbordan un int
+    public long getTotalSeconds() {
+        return (long) totalImages * secondsPerImage;
+    }
+
+    // Segundos enteros transcurridos (0 antes del inicio)
+    private long elapsedSeconds(long nowNanos) {
+        return Math.max(0, nowNanos - startNanos) / SECOND_NANOS;
+    }
+
+    // Segundos que muestra el contador: el total al inicio y 0 al terminar
+    public long remainingSecondsAt(long nowNanos) {
+        return Math.max(0, getTotalSeconds() - elapsedSeconds(nowNanos));
+    }
+
+    // Imagen que corresponde a ese instante (la última se mantiene hasta el final)
+    public int imageIndexAt(long nowNanos) {
+        if (totalImages <= 0) {
+            return 0;
+        }
+        return (int) Math.min(totalImages - 1, elapsedSeconds(nowNanos) / secondsPerImage);
+    }
+
+    public boolean isFinishedAt(long nowNanos) {
+        return remainingSecondsAt(nowNanos) == 0;
+    }
+
+    // Próximo instante en que cambia el contador (y quizá la imagen), estrictamente después
+    // de 'nowNanos'; Long.MAX_VALUE si ya terminó
+    public long nextBoundaryAfter(long nowNanos) {
+        if (isFinishedAt(nowNanos)) {
+            return Long.MAX_VALUE;
+        }
+        return startNanos + (elapsedSeconds(nowNanos) + 1) * SECOND_NANOS;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.l2_20223209.concurrent;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Con el único hilo ocupado, las tareas en cola salen por prioridad y, a igual prioridad,
+ * en orden de llegada; las métricas cuentan todas las tareas ejecutadas.
+ */
+public class LaneExecutorTest {
+
+    @Test
+    public void queuedTasksRunByPriorityThenArrival() throws Exception {
+        // Sin android.os.Process: en la JVM no existe la prioridad de hilos de Android
+        LaneExecutor lane = new LaneExecutor("test", 1, 0, priority -> { });
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        lane.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        lane.execute(LaneExecutor.PRIORITY_LOW, () -> { order.add("low-1"); done.countDown(); });
+        lane.execute(LaneExecutor.PRIORITY_NORMAL, () -> { order.add("normal-1"); done.countDown(); });
+        lane.execute(LaneExecutor.PRIORITY_HIGH, () -> { order.add("high"); done.countDown(); });
+        lane.execute(LaneExecutor.PRIORITY_LOW, () -> { order.add("low-2"); done.countDown(); });
+        lane.withPriority(LaneExecutor.PRIORITY_NORMAL).execute(() -> { order.add("normal-2"); done.countDown(); });
+        assertEquals(5, lane.getQueueDepth());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("high", "normal-1", "normal-2", "low-1", "low-2"), order);
+        assertEquals(5, lane.getMaxQueueDepth());
+        // La última tarea cuenta como completada al volver de run()
+        Thread.sleep(50);
+        assertEquals(6, lane.getCompletedCount());
+        assertEquals(6, lane.getWaitTimes().getCount());
+    }
+}
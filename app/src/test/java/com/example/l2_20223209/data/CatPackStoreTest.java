@@ -0,0 +1,149 @@
+package com.example.l2_20223209.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link CatPackStore} no supera su límite de bytes: al llenarse borra las imágenes más
+ * antiguas de cualquier paquete, y al reabrirse recupera el mismo índice. Las imágenes se
+ * resuelven al pedirlas, saltando las que ya no están en disco.
+ */
+public class CatPackStoreTest {
+
+    private static final int IMAGE_BYTES = 1000;
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("cat_pack").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(root);
+    }
+
+    @Test
+    public void evictsOldestImagesAcrossPacks() throws IOException {
+        CatPackStore store = new CatPackStore(root, 5 * IMAGE_BYTES);
+        File first = store.add("hola", image(1));
+        store.add("hola", image(2));
+        store.add("adiós", image(3));
+        store.add("adiós", image(4));
+        store.add("hola", image(5));
+        assertEquals(5 * IMAGE_BYTES, store.getTotalBytes());
+
+        store.add("adiós", image(6));
+        assertEquals(5 * IMAGE_BYTES, store.getTotalBytes());
+        assertFalse(first.exists());
+        assertEquals(2, store.count("hola"));
+        assertEquals(3, store.count("adiós"));
+    }
+
+    @Test
+    public void reopenedStoreKeepsOrderAndIgnoresPartialWrites() throws IOException {
+        CatPackStore store = new CatPackStore(root, 100 * IMAGE_BYTES);
+        for (int i = 0; i < 4; i++) {
+            store.add(" michi ", image(i));
+        }
+        List<File> before = store.list("michi");
+        File partial = new File(before.get(0).getParentFile(), "9999999999999-000000.tmp");
+        Files.write(partial.toPath(), new byte[IMAGE_BYTES]);
+
+        CatPackStore reopened = new CatPackStore(root, 100 * IMAGE_BYTES);
+        // Hasta leer el índice el paquete se ve vacío
+        assertEquals(0, reopened.count("michi"));
+        assertFalse(reopened.whenLoaded().isDone());
+        reopened.load();
+        assertTrue(reopened.whenLoaded().isDone());
+        assertEquals(before, reopened.list("michi"));
+        assertEquals(4L * IMAGE_BYTES, reopened.getTotalBytes());
+        assertFalse(partial.exists());
+        assertEquals(0, reopened.count("otro texto"));
+    }
+
+    @Test
+    public void rejectsOversizedImages() throws IOException {
+        CatPackStore store = new CatPackStore(root, 100L * 1024 * 1024);
+        try {
+            store.add("grande", new ByteArrayInputStream(new byte[(int) CatPackStore.MAX_IMAGE_BYTES + 1]));
+            fail("Se esperaba IOException");
+        } catch (IOException expected) {
+            // Esperado
+        }
+        assertEquals(0, store.count("grande"));
+        assertEquals(0, store.getTotalBytes());
+        assertTrue(store.list("grande").isEmpty());
+    }
+
+    @Test
+    public void imageAtFollowsEvictionAndSkipsMissingFiles() throws IOException {
+        CatPackStore store = new CatPackStore(root, 3 * IMAGE_BYTES);
+        File first = store.add("gato", image(1));
+        File second = store.add("gato", image(2));
+        File third = store.add("gato", image(3));
+        assertEquals(first, store.imageAt("gato", 0));
+        assertEquals(third, store.imageAt("gato", 5));
+
+        // Otro paquete llena el almacenamiento y se borra la imagen más antigua de este
+        store.add("perro", image(4));
+        assertFalse(first.exists());
+        assertEquals(second, store.imageAt("gato", 0));
+
+        // Un archivo borrado por fuera del índice se salta
+        assertTrue(second.delete());
+        assertEquals(third, store.imageAt("gato", 0));
+        assertEquals(third, store.imageAt("gato", 1));
+        assertTrue(third.delete());
+        assertNull(store.imageAt("gato", 0));
+        assertNull(store.imageAt("otro texto", 0));
+    }
+
+    @Test
+    public void packHandleReadsTheIndexWithoutTouchingTheDisk() throws IOException {
+        CatPackStore store = new CatPackStore(root, 3 * IMAGE_BYTES);
+        CatPackStore.Pack pack = store.pack(" gato ");
+        assertEquals(0, pack.count());
+        assertNull(pack.indexedImageAt(0));
+
+        File first = store.add("gato", image(1));
+        File second = store.add("gato", image(2));
+        assertEquals(2, pack.count());
+        assertEquals(second, pack.indexedImageAt(3));
+
+        // El índice en memoria no sabe de archivos borrados por fuera; imageAt sí los salta
+        assertTrue(first.delete());
+        assertEquals(first, pack.indexedImageAt(0));
+        assertEquals(second, pack.imageAt(0));
+    }
+
+    private static ByteArrayInputStream image(int seed) {
+        byte[] bytes = new byte[IMAGE_BYTES];
+        bytes[0] = (byte) seed;
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
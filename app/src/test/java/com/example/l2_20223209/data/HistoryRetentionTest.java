@@ -0,0 +1,57 @@
+package com.example.l2_20223209.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link HistoryRetention#cutoff}: hasta qué interacción compactar según los límites de
+ * cantidad, antigüedad y bytes. Los agregados son {cantidad, imágenes, primera, última}.
+ */
+public class HistoryRetentionTest {
+
+    // 150 interacciones vivas, de la 11 a la 160
+    private static final long[] AGGREGATES = {150, 300, 11, 160};
+
+    @Test
+    public void nothingToCompactWithinLimits() {
+        HistoryRetention retention = new HistoryRetention(200, 0, 10_000);
+        assertEquals(0, retention.cutoff(AGGREGATES, 5_000, 0));
+        assertEquals(0, retention.cutoff(new long[]{0, 0, 0, 160}, 0, 0));
+        assertEquals(0, HistoryRetention.UNLIMITED.cutoff(AGGREGATES, Long.MAX_VALUE, 0));
+    }
+
+    @Test
+    public void entryLimitKeepsTheNewest() {
+        HistoryRetention retention = new HistoryRetention(100, 0, 0);
+        // Sobran 50: de la 11 a la 60
+        assertEquals(60, retention.cutoff(AGGREGATES, 0, 0));
+    }
+
+    @Test
+    public void ageLimitCompactsThroughLastExpired() {
+        HistoryRetention retention = new HistoryRetention(0, HistoryRollup.DAY_MS, 0);
+        assertEquals(0, retention.cutoff(AGGREGATES, 0, 0));
+        assertEquals(30, retention.cutoff(AGGREGATES, 0, 30));
+
+        // Con varios límites gana el que compacta más
+        HistoryRetention both = new HistoryRetention(100, HistoryRollup.DAY_MS, 0);
+        assertEquals(60, both.cutoff(AGGREGATES, 0, 30));
+        assertEquals(80, both.cutoff(AGGREGATES, 0, 80));
+    }
+
+    @Test
+    public void byteLimitCompactsBelowTheTarget() {
+        HistoryRetention retention = new HistoryRetention(0, 0, 1_500);
+        // 20 bytes por interacción; hay que bajar a 1350 (90%): sobran 1650 bytes = 83
+        assertEquals(11 + 83 - 1, retention.cutoff(AGGREGATES, 3_000, 0));
+        assertEquals(0, retention.cutoff(AGGREGATES, 1_500, 0));
+    }
+
+    @Test
+    public void cutoffNeverPassesTheLastInteraction() {
+        HistoryRetention retention = new HistoryRetention(0, 0, 10);
+        assertEquals(160, retention.cutoff(AGGREGATES, 1_000_000, 0));
+        assertEquals(160, new HistoryRetention(0, HistoryRollup.DAY_MS, 0).cutoff(AGGREGATES, 0, 160));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.l2_20223209.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link HistorySearchIndex}: palabras sin tildes ni mayúsculas, búsqueda por prefijo de
+ * todas las palabras de la consulta y resultados en orden creciente de número.
+ */
+public class HistorySearchIndexTest {
+
+    @Test
+    public void tokenizesWithoutAccentsOrCase() {
+        assertEquals(Arrays.asList("hola", "gato", "nandu", "42"),
+                HistorySearchIndex.tokenize("¡Hola, GATÓ!  Ñandú-42"));
+        assertEquals(0, HistorySearchIndex.tokenize("  ¿?! ").size());
+        assertEquals(0, HistorySearchIndex.tokenize(null).size());
+    }
+
+    @Test
+    public void accentsDoNotMatter() {
+        HistorySearchIndex index = indexOf("gato", "Gató feliz", "perro");
+        assertArrayEquals(new int[]{1, 2}, index.search("gató"));
+        assertArrayEquals(new int[]{1, 2}, index.search("GATO"));
+    }
+
+    @Test
+    public void everyWordMatchesAsPrefix() {
+        HistorySearchIndex index = indexOf("gatos felices", "gato triste", "gatito feliz", "perro feliz");
+        assertArrayEquals(new int[]{1, 2, 3}, index.search("gat"));
+        assertArrayEquals(new int[]{1, 3}, index.search("gat feli"));
+        assertArrayEquals(new int[]{4}, index.search("feliz perro"));
+        assertArrayEquals(new int[0], index.search("gato perro"));
+        assertArrayEquals(new int[0], index.search(""));
+    }
+
+    @Test
+    public void repeatedWordsAndCompactionKeepOrder() {
+        HistorySearchIndex index = indexOf("miau miau", "miau", "otro", "miau");
+        assertArrayEquals(new int[]{1, 2, 4}, index.search("miau"));
+
+        index.removeThrough(2);
+        assertArrayEquals(new int[]{4}, index.search("miau"));
+        assertArrayEquals(new int[]{3}, index.search("otro"));
+        index.clear();
+        assertArrayEquals(new int[0], index.search("miau"));
+    }
+
+    private static HistorySearchIndex indexOf(String... texts) {
+        HistorySearchIndex index = new HistorySearchIndex();
+        for (int i = 0; i < texts.length; i++) {
+            index.add(new HistoryManager.Interaction(texts[i], 1, 0L, i + 1));
+        }
+        return index;
+    }
+}
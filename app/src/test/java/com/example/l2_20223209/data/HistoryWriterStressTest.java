@@ -0,0 +1,248 @@
+package com.example.l2_20223209.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Varios hilos agregan interacciones a la vez a través de {@link HistoryWriter}:
+ * no debe perderse ni repetirse ninguna y los números deben llegar en orden al almacenamiento
+ * y al índice de búsqueda.
+ */
+public class HistoryWriterStressTest {
+
+    private static final int THREADS = 8;
+    private static final int ADDS_PER_THREAD = 2_000;
+
+    @Test
+    public void concurrentAddsAreNeitherLostNorDuplicated() throws Exception {
+        RecordingStore store = new RecordingStore();
+        HistorySearchIndex index = new HistorySearchIndex();
+        HistoryWriter writer = new HistoryWriter(store, new HistoryWriter.Listener() {
+            @Override
+            public void onAdded(List<HistoryManager.Interaction> interactions) {
+                index.addAll(interactions);
+            }
+
+            @Override
+            public void onCleared() {
+                index.clear();
+            }
+        });
+        List<CompletableFuture<HistoryManager.Interaction>> futures =
+                Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    futures.add(writer.add("hilo " + thread, 1 + i % 3));
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        writer.close();
+
+        int expected = THREADS * ADDS_PER_THREAD;
+        assertEquals(expected, futures.size());
+        assertEquals(expected, writer.getTotalInteractions());
+        assertEquals(expected, writer.getLastInteractionNumber());
+        assertEquals(1, writer.getFirstInteractionNumber());
+
+        // Cada número aparece exactamente una vez, tanto en los futures como en el almacenamiento
+        Set<Integer> fromFutures = new HashSet<>();
+        long expectedImages = 0;
+        for (CompletableFuture<HistoryManager.Interaction> future : futures) {
+            HistoryManager.Interaction interaction = future.get();
+            assertTrue(fromFutures.add(interaction.getInteractionNumber()));
+            expectedImages += interaction.getQuantity();
+        }
+        assertEquals(expectedImages, writer.getTotalImagesViewed());
+
+        assertEquals(expected, store.rows.size());
+        for (int i = 0; i < expected; i++) {
+            // El almacenamiento recibe los números estrictamente crecientes: 1, 2, 3, ...
+            assertEquals(i + 1, store.rows.get(i).getInteractionNumber());
+            assertTrue(fromFutures.contains(i + 1));
+        }
+
+        // El índice también las recibió en orden: la búsqueda devuelve 1..N sin huecos
+        int[] found = index.search("hilo");
+        assertEquals(expected, found.length);
+        for (int i = 0; i < expected; i++) {
+            assertEquals(i + 1, found[i]);
+        }
+
+        // Las escrituras concurrentes se agruparon en menos commits que interacciones
+        assertTrue("commits=" + store.commits, store.commits < expected);
+    }
+
+    @Test
+    public void readsSeeAllEarlierWrites() throws Exception {
+        RecordingStore store = new RecordingStore();
+        HistoryWriter writer = new HistoryWriter(store);
+        for (int i = 0; i < 100; i++) {
+            writer.add("texto", 1);
+        }
+        assertEquals(100, (int) writer.read(s -> s.loadAll().size()).get(5, TimeUnit.SECONDS));
+
+        writer.clear();
+        writer.add("nuevo", 2);
+        List<HistoryManager.Interaction> all = writer.read(HistoryStore::loadAll).get(5, TimeUnit.SECONDS);
+        assertEquals(1, all.size());
+        assertEquals(1, all.get(0).getInteractionNumber());
+        writer.close();
+    }
+
+    @Test
+    public void storeIsOpenedOnTheWriterThreadBeforeAnyOperation() throws Exception {
+        RecordingStore store = new RecordingStore();
+        store.rows.add(new HistoryManager.Interaction("guardada", 2, 7));
+        CountDownLatch release = new CountDownLatch(1);
+        Thread caller = Thread.currentThread();
+        List<Thread> openedOn = new ArrayList<>();
+        HistoryWriter writer = new HistoryWriter(() -> {
+            openedOn.add(Thread.currentThread());
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return store;
+        }, null);
+
+        // El constructor no espera a la apertura; la lectura encolada sí
+        CompletableFuture<Integer> read = writer.read(s -> s.loadAll().size());
+        assertFalse(writer.whenOpened().isDone());
+        assertFalse(read.isDone());
+        release.countDown();
+        assertEquals(1, (int) read.get(5, TimeUnit.SECONDS));
+        assertTrue(writer.whenOpened().isDone());
+        assertEquals(1, openedOn.size());
+        assertTrue(openedOn.get(0) != caller);
+
+        // Los números siguen después de lo guardado
+        assertEquals(8, writer.add("nueva", 1).get(5, TimeUnit.SECONDS).getInteractionNumber());
+        writer.close();
+    }
+
+    // Almacenamiento en memoria que registra el orden de llegada y la cantidad de commits.
+    // Solo lo usa el hilo escritor.
+    private static class RecordingStore implements HistoryStore {
+        final List<HistoryManager.Interaction> rows = new ArrayList<>();
+        int commits;
+
+        @Override
+        public void insert(HistoryManager.Interaction interaction) {
+            insertAll(Collections.singletonList(interaction));
+        }
+
+        @Override
+        public void insertAll(List<HistoryManager.Interaction> interactions) {
+            rows.addAll(interactions);
+            commits++;
+        }
+
+        @Override
+        public void clear() {
+            rows.clear();
+        }
+
+        @Override
+        public HistoryManager.Interaction load(int interactionNumber) {
+            for (HistoryManager.Interaction row : rows) {
+                if (row.getInteractionNumber() == interactionNumber) {
+                    return row;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public List<HistoryManager.Interaction> loadRange(int fromNumber, int toNumber) {
+            List<HistoryManager.Interaction> range = new ArrayList<>();
+            for (HistoryManager.Interaction row : rows) {
+                if (row.getInteractionNumber() >= fromNumber && row.getInteractionNumber() <= toNumber) {
+                    range.add(row);
+                }
+            }
+            return range;
+        }
+
+        @Override
+        public List<HistoryManager.Interaction> loadNumbers(int[] interactionNumbers) {
+            List<HistoryManager.Interaction> interactions = new ArrayList<>();
+            for (int number : interactionNumbers) {
+                HistoryManager.Interaction interaction = load(number);
+                if (interaction != null) {
+                    interactions.add(interaction);
+                }
+            }
+            return interactions;
+        }
+
+        @Override
+        public List<HistoryManager.Interaction> loadAll() {
+            return new ArrayList<>(rows);
+        }
+
+        @Override
+        public long[] loadAggregates() {
+            long images = 0;
+            for (HistoryManager.Interaction row : rows) {
+                images += row.getQuantity();
+            }
+            return rows.isEmpty() ? new long[]{0, 0, 0, 0} : new long[]{rows.size(), images,
+                    rows.get(0).getInteractionNumber(), rows.get(rows.size() - 1).getInteractionNumber()};
+        }
+
+        @Override
+        public List<HistoryRollup> loadRollups(int granularity, long fromBucket, long toBucket) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public HistoryRollup loadRollupTotal(int granularity, long fromBucket, long toBucket) {
+            return new HistoryRollup(granularity, fromBucket, toBucket, 0, 0, 0);
+        }
+
+        @Override
+        public long estimateSizeBytes() {
+            return 0;
+        }
+
+        @Override
+        public int findLastNumberBefore(long timestamp) {
+            return 0;
+        }
+
+        @Override
+        public long[] deleteThrough(int lastNumber) {
+            return new long[]{0, 0};
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.l2_20223209.data;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compara el camino reflexivo de Gson (TypeToken + fromJson de la lista completa) con la
+ * lectura en streaming de {@link InteractionJson} para 1k/10k/100k interacciones. Tarda y sus
+ * tiempos dependen de la máquina, así que no corre con el resto de las pruebas: quitar
+ * {@code @Ignore} para ejecutarlo. Los tiempos medidos aparecen en el mensaje si falla.
+ */
+@Ignore("Benchmark manual")
+public class InteractionJsonBenchmark {
+
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int LAST_N = 20;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Test
+    public void streamingIsFasterThanReflective() throws IOException {
+        for (int size : SIZES) {
+            String json = InteractionJsonTest.buildHistoryJson(size);
+
+            long reflectiveNanos = measure(() -> {
+                List<HistoryManager.Interaction> history = InteractionJsonTest.parseReflective(json);
+                return history.size() + InteractionJsonTest.sumQuantities(history)
+                        + history.subList(history.size() - LAST_N, history.size()).size();
+            });
+            long countNanos = measure(() -> InteractionJson.count(new StringReader(json)));
+            long sumNanos = measure(() -> InteractionJson.sumQuantities(new StringReader(json)));
+            long lastNanos = measure(() -> InteractionJson.readRange(
+                    new StringReader(json), size - LAST_N, size).size());
+
+            String report = String.format(Locale.US,
+                    "n=%d reflexivo(lista+conteo+suma+ultimos)=%.2f ms | conteo=%.2f ms"
+                            + " | suma=%.2f ms | ultimos %d=%.2f ms",
+                    size, reflectiveNanos / 1e6, countNanos / 1e6, sumNanos / 1e6,
+                    LAST_N, lastNanos / 1e6);
+            assertTrue(report, countNanos + sumNanos + lastNanos < reflectiveNanos);
+        }
+    }
+
+    private interface Workload {
+        long run() throws IOException;
+    }
+
+    // Mediana de varias rondas tras un calentamiento; el resultado se acumula para que el
+    // JIT no descarte el trabajo
+    private static long measure(Workload workload) throws IOException {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += workload.run();
+        }
+        long[] samples = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += workload.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        assertTrue(sink != Long.MIN_VALUE);
+        return samples[MEASURED_ROUNDS / 2];
+    }
+}
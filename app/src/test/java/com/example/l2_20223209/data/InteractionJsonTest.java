@@ -0,0 +1,65 @@
+package com.example.l2_20223209.data;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * La lectura en streaming de {@link InteractionJson} da el mismo conteo, suma y rango que el
+ * camino reflexivo de Gson (TypeToken + fromJson de la lista completa).
+ */
+public class InteractionJsonTest {
+
+    @Test
+    public void streamingMatchesReflectivePath() throws IOException {
+        String json = buildHistoryJson(500);
+        List<HistoryManager.Interaction> reflective = parseReflective(json);
+
+        assertEquals(reflective.size(), InteractionJson.count(new StringReader(json)));
+        assertEquals(sumQuantities(reflective), InteractionJson.sumQuantities(new StringReader(json)));
+
+        List<HistoryManager.Interaction> range =
+                InteractionJson.readRange(new StringReader(json), 480, 500);
+        assertEquals(20, range.size());
+        for (int i = 0; i < range.size(); i++) {
+            HistoryManager.Interaction expected = reflective.get(480 + i);
+            HistoryManager.Interaction actual = range.get(i);
+            assertEquals(expected.getText(), actual.getText());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.getInteractionNumber(), actual.getInteractionNumber());
+        }
+    }
+
+    static List<HistoryManager.Interaction> parseReflective(String json) {
+        Type listType = new TypeToken<List<HistoryManager.Interaction>>(){}.getType();
+        return new Gson().fromJson(json, listType);
+    }
+
+    static long sumQuantities(List<HistoryManager.Interaction> history) {
+        long total = 0;
+        for (HistoryManager.Interaction interaction : history) {
+            total += interaction.getQuantity();
+        }
+        return total;
+    }
+
+    // JSON con el mismo formato que guardaba la versión anterior en SharedPreferences
+    static String buildHistoryJson(int size) {
+        List<HistoryManager.Interaction> history = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            history.add(new HistoryManager.Interaction(
+                    i % 3 == 0 ? "" : "Hola gato " + i, 1 + i % 7, 1_700_000_000_000L + i * 1000L, i));
+        }
+        return new Gson().toJson(history);
+    }
+}
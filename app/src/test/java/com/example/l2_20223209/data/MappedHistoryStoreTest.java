@@ -0,0 +1,155 @@
+package com.example.l2_20223209.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compactación en {@link MappedHistoryStore}: lo borrado queda en los resúmenes, la
+ * numeración continúa después del corte (también al reabrir) y la tabla de textos, que no
+ * se compacta, no cuenta para el límite de bytes.
+ */
+public class MappedHistoryStoreTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("history").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void compactionKeepsRollupsAndNumbering() throws Exception {
+        MappedHistoryStore store = open();
+        List<HistoryManager.Interaction> interactions = new ArrayList<>();
+        long removedImages = 0;
+        for (int number = 1; number <= 100; number++) {
+            int quantity = 1 + number % 3;
+            interactions.add(new HistoryManager.Interaction("texto " + number % 5, quantity,
+                    START + number * HistoryRollup.HOUR_MS / 4, number));
+            if (number <= 40) {
+                removedImages += quantity;
+            }
+        }
+        store.insertAll(interactions);
+        long totalImages = store.loadAggregates()[1];
+        HistoryRollup before = totalRollup(store);
+
+        assertArrayEquals(new long[]{40, removedImages}, store.deleteThrough(40));
+        assertArrayEquals(new long[]{60, totalImages - removedImages, 41, 100}, store.loadAggregates());
+        assertEquals(41, store.loadAll().get(0).getInteractionNumber());
+        assertRollupEquals(before, totalRollup(store));
+
+        // Al reabrir se conservan el corte y los resúmenes de lo compactado
+        MappedHistoryStore reopened = open();
+        assertArrayEquals(new long[]{60, totalImages - removedImages, 41, 100}, reopened.loadAggregates());
+        assertRollupEquals(before, totalRollup(reopened));
+
+        // Aunque se compacte todo, la numeración sigue donde estaba
+        reopened.deleteThrough(100);
+        assertArrayEquals(new long[]{0, 0, 0, 100}, reopened.loadAggregates());
+        HistoryWriter writer = new HistoryWriter(reopened);
+        assertEquals(101, writer.add("nuevo", 1).get(5, TimeUnit.SECONDS).getInteractionNumber());
+        writer.close();
+    }
+
+    @Test
+    public void compactedRollupsCarryOverToAnotherStore() throws Exception {
+        MappedHistoryStore source = open();
+        List<HistoryManager.Interaction> interactions = new ArrayList<>();
+        RollupTable full = new RollupTable();
+        RollupTable live = new RollupTable();
+        for (int number = 1; number <= 100; number++) {
+            HistoryManager.Interaction interaction = new HistoryManager.Interaction("texto " + number % 5,
+                    1 + number % 3, START + number * HistoryRollup.HOUR_MS / 4, number);
+            interactions.add(interaction);
+            full.add(interaction);
+            if (number > 40) {
+                live.add(interaction);
+            }
+        }
+        source.insertAll(interactions);
+        long[] removed = source.deleteThrough(40);
+
+        // Lo compactado es el total menos lo que sigue en la tabla (conservando los textos)
+        HistoryRollup compacted = full.minusCounts(live).loadTotal(HistoryRollup.HOURLY,
+                HistoryRollup.bucketOf(HistoryRollup.HOURLY, START),
+                HistoryRollup.bucketOf(HistoryRollup.HOURLY, START + 100 * HistoryRollup.HOUR_MS));
+        assertEquals(removed[0], compacted.getInteractions());
+        assertEquals(removed[1], compacted.getImagesViewed());
+
+        // Copiar registros y resúmenes compactados deja el mismo historial en el destino
+        MappedHistoryStore target = new MappedHistoryStore(new File(dir, "records2.bin"),
+                new File(dir, "texts2.bin"), new File(dir, "rollups2.bin"));
+        target.insertAll(source.loadAll());
+        target.importCompacted(source.copyCompactedRollups(), 100);
+        assertArrayEquals(source.loadAggregates(), target.loadAggregates());
+        assertRollupEquals(totalRollup(source), totalRollup(target));
+        source.close();
+        target.close();
+    }
+
+    @Test
+    public void distinctTextsDoNotCountTowardsByteLimit() throws Exception {
+        MappedHistoryStore store = open();
+        HistoryWriter writer = new HistoryWriter(store);
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            longText.append('x');
+        }
+        for (int i = 0; i < 200; i++) {
+            writer.add(longText + " " + i, 1);
+        }
+
+        // Los textos ocupan ~100 KB, los registros 200 x 24 bytes: dentro del límite
+        assertEquals(0, (int) writer.compact(new HistoryRetention(0, 0, 10_000), START).get(5, TimeUnit.SECONDS));
+        assertEquals(200, writer.getTotalInteractions());
+
+        // Con los registros por encima del límite se compacta solo lo necesario
+        int cutoff = writer.compact(new HistoryRetention(0, 0, 4_000), START).get(5, TimeUnit.SECONDS);
+        assertEquals(50, cutoff);
+        assertEquals(150, writer.getTotalInteractions());
+        assertEquals(51, writer.getFirstInteractionNumber());
+        writer.close();
+    }
+
+    private MappedHistoryStore open() throws IOException {
+        return new MappedHistoryStore(new File(dir, "records.bin"), new File(dir, "texts.bin"),
+                new File(dir, "rollups.bin"));
+    }
+
+    private static HistoryRollup totalRollup(MappedHistoryStore store) {
+        return store.loadRollupTotal(HistoryRollup.HOURLY,
+                HistoryRollup.bucketOf(HistoryRollup.HOURLY, START),
+                HistoryRollup.bucketOf(HistoryRollup.HOURLY, START + 100 * HistoryRollup.HOUR_MS));
+    }
+
+    private static void assertRollupEquals(HistoryRollup expected, HistoryRollup actual) {
+        assertEquals(expected.getInteractions(), actual.getInteractions());
+        assertEquals(expected.getImagesViewed(), actual.getImagesViewed());
+        assertEquals(expected.getDistinctTexts(), actual.getDistinctTexts());
+    }
+}
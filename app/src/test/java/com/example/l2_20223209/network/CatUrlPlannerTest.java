@@ -0,0 +1,45 @@
+package com.example.l2_20223209.network;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Con la semilla del día, una presentación sin texto en la URL repite las mismas URLs durante
+ * todo el día (y las encuentra en caché), y las de días distintos no se mezclan.
+ */
+public class CatUrlPlannerTest {
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long NOON = 20_000 * DAY_MILLIS + DAY_MILLIS / 2;
+
+    @Test
+    public void dailySeedIsStableWithinADay() {
+        long seed = CatUrlPlanner.dailySeed(NOON);
+        assertEquals(seed, CatUrlPlanner.dailySeed(NOON - DAY_MILLIS / 2));
+        assertEquals(seed, CatUrlPlanner.dailySeed(NOON + DAY_MILLIS / 2 - 1));
+        assertTrue(CatUrlPlanner.dailySeed(NOON + DAY_MILLIS / 2) > seed);
+
+        String first = new CatUrlPlanner("", 10, seed).urlFor(0, 600, 800, -1);
+        assertEquals(first, new CatUrlPlanner("", 1, CatUrlPlanner.dailySeed(NOON + 1000)).urlFor(0, 600, 800, -1));
+    }
+
+    @Test
+    public void consecutiveDaysDoNotShareUrls() {
+        int quantity = 1_000_000;
+        CatUrlPlanner today = new CatUrlPlanner("", quantity, CatUrlPlanner.dailySeed(NOON));
+        CatUrlPlanner tomorrow = new CatUrlPlanner("", quantity, CatUrlPlanner.dailySeed(NOON + DAY_MILLIS));
+        Set<String> lastOfToday = new HashSet<>();
+        for (int index = today.size() - 2000; index < today.size(); index++) {
+            lastOfToday.add(today.urlFor(index, 600, 800, -1));
+        }
+        for (int index = 0; index < 2000; index++) {
+            assertFalse(lastOfToday.contains(tomorrow.urlFor(index, 600, 800, -1)));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.l2_20223209.network;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Los percentiles deben caer dentro del error de los buckets y los registros simultáneos
+ * no deben perderse.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesStayWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1..1000 ms
+        for (int ms = 1; ms <= 1000; ms++) {
+            histogram.recordNanos(ms * 1_000_000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertClose(500, histogram.percentileMs(50));
+        assertClose(950, histogram.percentileMs(95));
+        assertClose(990, histogram.percentileMs(99));
+    }
+
+    @Test
+    public void emptyHistogramHasNoPercentiles() {
+        assertEquals(-1, new LatencyHistogram().percentileMs(50), 0);
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.recordNanos(i * 1000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80_000, histogram.getCount());
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertTrue("esperado ~" + expected + " pero fue " + actual,
+                Math.abs(actual - expected) <= expected * 0.125);
+    }
+}
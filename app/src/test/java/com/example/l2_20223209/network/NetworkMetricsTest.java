@@ -0,0 +1,67 @@
+package com.example.l2_20223209.network;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import okhttp3.HttpUrl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * La duración de una llamada se entrega una sola vez a la imagen que la pidió, de cada
+ * imagen mostrada solo se exportan las fases que se pudieron separar y los contadores de
+ * los agrupadores de pedidos se suman por nombre.
+ */
+public class NetworkMetricsTest {
+
+    private static final String URL = "https://cataas.com/cat?width=400&i=7";
+
+    @Test
+    public void callDurationIsTakenOnce() {
+        NetworkMetrics metrics = new NetworkMetrics();
+        metrics.recordCall(HttpUrl.parse(URL), 120_000_000L);
+        assertEquals(120, metrics.takeCallMs(URL));
+        assertEquals(-1, metrics.takeCallMs(URL));
+        assertEquals(-1, metrics.takeCallMs("/data/paquete/1.jpg"));
+    }
+
+    @Test
+    public void imageLoadsSkipPhasesThatWereNotSplit() {
+        NetworkMetrics metrics = new NetworkMetrics();
+        metrics.recordImageLoad(5, 120, 30, 160);
+        metrics.recordImageLoad(3, -1, -1, 400);
+
+        String json = metrics.toJson();
+        assertTrue(json, json.contains("\"slideshow\""));
+        assertEquals(2, countOf(metrics.toText(), "n=2"));
+        assertEquals(2, countOf(metrics.toText(), "n=1"));
+    }
+
+    @Test
+    public void coalescersSharingCountsAreExportedTogether() {
+        NetworkMetrics metrics = new NetworkMetrics();
+        RequestCoalescer<String, Void> first = new RequestCoalescer<>(metrics.coalescingCounts("images"));
+        RequestCoalescer<String, Void> second = new RequestCoalescer<>(metrics.coalescingCounts("images"));
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        first.get(URL, () -> pending);
+        first.join(URL);
+        second.get(URL, () -> pending);
+
+        RequestCoalescer.Counts counts = metrics.coalescingCounts("images");
+        assertEquals(3, counts.getRequestCount());
+        assertEquals(2, counts.getFetchCount());
+        assertEquals(1, counts.getSavedCount());
+        String json = metrics.toJson();
+        assertTrue(json, json.contains("\"saved\": 1"));
+    }
+
+    private static int countOf(String text, String part) {
+        int count = 0;
+        for (int at = text.indexOf(part); at >= 0; at = text.indexOf(part, at + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
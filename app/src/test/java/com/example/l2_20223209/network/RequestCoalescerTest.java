@@ -0,0 +1,104 @@
+package com.example.l2_20223209.network;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pedidos simultáneos de la misma clave deben compartir una sola descarga y el mismo
+ * resultado; al terminar la descarga la clave se libera.
+ */
+public class RequestCoalescerTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    public void concurrentRequestsShareOneFetch() throws Exception {
+        RequestCoalescer<String, byte[]> coalescer = new RequestCoalescer<>();
+        AtomicInteger fetches = new AtomicInteger();
+        CompletableFuture<byte[]> network = new CompletableFuture<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<byte[]>> results = new ArrayList<>();
+        List<CompletableFuture<CompletableFuture<byte[]>>> requests = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            requests.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return coalescer.get("gato", () -> {
+                    fetches.incrementAndGet();
+                    return network;
+                });
+            }, pool));
+        }
+        start.countDown();
+        for (CompletableFuture<CompletableFuture<byte[]>> request : requests) {
+            results.add(request.get(10, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        byte[] image = new byte[]{1, 2, 3};
+        network.complete(image);
+        for (CompletableFuture<byte[]> result : results) {
+            assertSame(image, result.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, fetches.get());
+        assertEquals(THREADS, coalescer.getRequestCount());
+        assertEquals(THREADS - 1, coalescer.getSavedCount());
+    }
+
+    @Test
+    public void keyIsReleasedAfterFailure() throws Exception {
+        RequestCoalescer<String, byte[]> coalescer = new RequestCoalescer<>();
+        CompletableFuture<byte[]> failed = new CompletableFuture<>();
+        CompletableFuture<byte[]> first = coalescer.get("gato", () -> failed);
+        failed.completeExceptionally(new RuntimeException("sin red"));
+        assertTrue(first.isCompletedExceptionally());
+
+        // Un reintento vuelve a descargar
+        byte[] image = new byte[]{4};
+        assertSame(image, coalescer.get("gato", () -> CompletableFuture.completedFuture(image)).get());
+        assertEquals(2, coalescer.getFetchCount());
+        assertEquals(0, coalescer.getSavedCount());
+    }
+
+    @Test
+    public void joinCountsOnlyWhenAFetchIsInFlight() throws Exception {
+        RequestCoalescer<String, byte[]> coalescer = new RequestCoalescer<>();
+        // Sin descarga en curso no se crea nada ni se cuenta
+        assertNull(coalescer.join("gato"));
+        assertEquals(0, coalescer.getRequestCount());
+        assertEquals(0, coalescer.getFetchCount());
+
+        CompletableFuture<byte[]> network = new CompletableFuture<>();
+        CompletableFuture<byte[]> prefetch = coalescer.get("gato", () -> network);
+        CompletableFuture<byte[]> joined = coalescer.join("gato");
+        byte[] image = new byte[]{5};
+        network.complete(image);
+        assertSame(image, prefetch.get(1, TimeUnit.SECONDS));
+        assertSame(image, joined.get(1, TimeUnit.SECONDS));
+        assertEquals(2, coalescer.getRequestCount());
+        assertEquals(1, coalescer.getFetchCount());
+        assertEquals(1, coalescer.getSavedCount());
+
+        // Terminada la descarga, la clave ya no está en curso
+        assertNull(coalescer.join("gato"));
+        assertEquals(2, coalescer.getRequestCount());
+    }
+}
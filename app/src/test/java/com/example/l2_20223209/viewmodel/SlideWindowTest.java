@@ -0,0 +1,83 @@
+package com.example.l2_20223209.viewmodel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * La ventana solo guarda las posiciones desde la imagen actual: al avanzar por una cantidad
+ * grande el tamaño se mantiene acotado, aunque haya imágenes adelantadas que nunca se mostraron.
+ */
+public class SlideWindowTest {
+
+    private static final int QUANTITY = 1_000_000;
+    private static final int AHEAD = 3;
+
+    @Test
+    public void sizeStaysBoundedAcrossALargeQuantity() {
+        SlideWindow window = new SlideWindow();
+        for (int current = 0; current < QUANTITY; current++) {
+            window.advanceTo(current);
+            window.plan(current, url(current));
+            for (int index = current + 1; index <= Math.min(QUANTITY - 1, current + AHEAD); index++) {
+                if (window.requestPrefetch(index)) {
+                    window.plan(index, url(index));
+                    window.recordPrefetch(index, url(index), 10, 5);
+                }
+            }
+            // Cada cierto tiempo la imagen en pantalla se cambia por una del paquete y sus
+            // tiempos adelantados nunca se toman
+            if (current % 7 != 0) {
+                window.takePrefetch(current);
+            }
+            assertTrue("size=" + window.size(), window.size() <= 3 * (AHEAD + 1));
+        }
+        // Al pasar la última imagen no queda nada
+        window.advanceTo(QUANTITY);
+        assertEquals(0, window.size());
+    }
+
+    @Test
+    public void latePrefetchOfAPassedSlideIsIgnored() {
+        SlideWindow window = new SlideWindow();
+        window.plan(1, url(1));
+        assertTrue(window.requestPrefetch(1));
+        assertFalse(window.requestPrefetch(1));
+
+        window.advanceTo(2);
+        // La descarga de la posición 1 termina cuando la presentación ya pasó por ella
+        window.recordPrefetch(1, url(1), 10, 5);
+        window.plan(1, url(1));
+        assertFalse(window.requestPrefetch(1));
+        assertNull(window.urlAt(1));
+        assertEquals(0, window.size());
+    }
+
+    @Test
+    public void timingsFollowThePlannedUrl() {
+        SlideWindow window = new SlideWindow();
+        window.plan(4, url(4));
+        window.recordPrefetch(4, url(4), 120, 30);
+        assertTrue(window.isPrefetched(4));
+        assertArrayEquals(new long[]{120, 30}, window.takePrefetch(4));
+        assertNull(window.takePrefetch(4));
+
+        // La posición pasó a mostrar otra imagen: los tiempos de la URL anterior no cuentan
+        window.plan(5, "/paquete/5.jpg");
+        window.recordPrefetch(5, url(5), 120, 30);
+        assertFalse(window.isPrefetched(5));
+
+        window.clear();
+        assertEquals(0, window.size());
+        window.plan(0, url(0));
+        assertEquals(url(0), window.urlAt(0));
+    }
+
+    private static String url(int index) {
+        return "https://cataas.com/cat?i=" + index;
+    }
+}
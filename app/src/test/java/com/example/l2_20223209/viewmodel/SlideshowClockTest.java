@@ -0,0 +1,56 @@
+package com.example.l2_20223209.viewmodel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * El estado de la presentación depende solo del instante, no de cuántos ticks hubo: un
+ * despertar tardío no acumula desfase y los límites caen en segundos exactos desde el inicio.
+ */
+public class SlideshowClockTest {
+
+    private static final long START = 5_000_000_000L;
+    private static final long SECOND = SlideshowClock.SECOND_NANOS;
+
+    @Test
+    public void stateFollowsElapsedTime() {
+        SlideshowClock clock = new SlideshowClock(START, 3, 4);
+        assertEquals(12, clock.remainingSecondsAt(START));
+        assertEquals(0, clock.imageIndexAt(START));
+        assertEquals(9, clock.remainingSecondsAt(START + 3 * SECOND + SECOND / 2));
+        assertEquals(1, clock.imageIndexAt(START + 4 * SECOND));
+        assertEquals(1, clock.imageIndexAt(START + 8 * SECOND - 1));
+        assertEquals(2, clock.imageIndexAt(START + 8 * SECOND));
+        assertFalse(clock.isFinishedAt(START + 12 * SECOND - 1));
+        assertTrue(clock.isFinishedAt(START + 12 * SECOND));
+        assertEquals(2, clock.imageIndexAt(START + 60 * SECOND));
+    }
+
+    @Test
+    public void boundariesDoNotDrift() {
+        SlideshowClock clock = new SlideshowClock(START, 1000, 4);
+        // Despertares siempre 7 ms tarde durante toda la sesión
+        long now = START;
+        for (int i = 0; i < 3999; i++) {
+            long boundary = clock.nextBoundaryAfter(now);
+            assertEquals(START + (i + 1) * SECOND, boundary);
+            now = boundary + 7_000_000L;
+        }
+        assertEquals(1, clock.remainingSecondsAt(now));
+        assertEquals(999, clock.imageIndexAt(now));
+        assertEquals(Long.MAX_VALUE, clock.nextBoundaryAfter(START + 4000 * SECOND));
+    }
+
+    @Test
+    public void largeQuantitiesDoNotOverflow() {
+        SlideshowClock clock = new SlideshowClock(START, 1_000_000_000, 4);
+        assertEquals(4_000_000_000L, clock.getTotalSeconds());
+        assertEquals(4_000_000_000L, clock.remainingSecondsAt(START));
+        long late = START + 3_999_999_999L * SECOND;
+        assertEquals(1, clock.remainingSecondsAt(late));
+        assertEquals(999_999_999, clock.imageIndexAt(late));
+    }
+}